@@ -1,6 +1,7 @@
 package org.pl.controller;
 
 
+import org.pl.payment_service.server.payment.model.BalanceDebitRequest;
 import org.pl.payment_service.server.payment.model.BalanceResponse;
 import org.pl.payment_service.server.payment.model.BalanceUpdateRequest;
 import org.pl.service.UserBalanceService;
@@ -40,4 +41,19 @@ class UserBalanceController implements org.pl.payment_service.server.payment.api
         userBalanceService.updateUserBalance(userId, balanceUpdateRequest.getBalance());
         return new ResponseEntity<>(balanceResponse, (HttpStatus.OK));
     }
-}
\ No newline at end of file
+
+    @Override
+    public ResponseEntity<BalanceResponse> debitUserBalance(
+            Long userId,
+            BalanceDebitRequest balanceDebitRequest
+    ) {
+        // Неположительная сумма - InvalidAmountException, ответ 400 формирует GlobalExceptionHandler
+        UserBalanceService.DebitResult result = userBalanceService.debitUserBalance(
+                userId, balanceDebitRequest.getAmount(), balanceDebitRequest.getIdempotencyKey());
+        BalanceResponse balanceResponse = new BalanceResponse();
+        balanceResponse.setUserId(userId);
+        balanceResponse.setBalance(result.balance());
+        balanceResponse.setReplayed(result.replayed());
+        return new ResponseEntity<>(balanceResponse, result.debited() ? HttpStatus.OK : HttpStatus.CONFLICT);
+    }
+}
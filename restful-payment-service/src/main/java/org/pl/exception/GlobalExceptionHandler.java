@@ -0,0 +1,24 @@
+package org.pl.exception;
+
+import org.pl.payment_service.server.payment.model.ErrorResponse;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+/**
+ * Ошибки API в виде ErrorResponse из спецификации
+ */
+@RestControllerAdvice
+public class GlobalExceptionHandler {
+
+    @ExceptionHandler(InvalidAmountException.class)
+    public ResponseEntity<ErrorResponse> handleInvalidAmount(InvalidAmountException e) {
+        return new ResponseEntity<>(new ErrorResponse("INVALID_AMOUNT", e.getMessage()), HttpStatus.BAD_REQUEST);
+    }
+
+    @ExceptionHandler(UserNotFoundException.class)
+    public ResponseEntity<ErrorResponse> handleUserNotFound(UserNotFoundException e) {
+        return new ResponseEntity<>(new ErrorResponse("USER_NOT_FOUND", e.getMessage()), HttpStatus.NOT_FOUND);
+    }
+}
@@ -0,0 +1,10 @@
+package org.pl.exception;
+
+/**
+ * Сумма операции не задана или не положительна
+ */
+public class InvalidAmountException extends RuntimeException {
+    public InvalidAmountException(String message) {
+        super(message);
+    }
+}
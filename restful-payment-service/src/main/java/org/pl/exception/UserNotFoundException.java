@@ -0,0 +1,10 @@
+package org.pl.exception;
+
+/**
+ * Пользователь с таким id не найден
+ */
+public class UserNotFoundException extends RuntimeException {
+    public UserNotFoundException(Long userId) {
+        super("User not found: " + userId);
+    }
+}
@@ -1,6 +1,7 @@
 package org.pl.repository;
 
 import org.pl.dao.User;
+import org.pl.exception.UserNotFoundException;
 import org.springframework.stereotype.Component;
 
 import java.math.BigDecimal;
@@ -13,17 +14,30 @@ public class FakeUserRepository {
         if (user.getId().equals(userId)) {
             return user;
         } else {
-            throw new RuntimeException("User not found");
+            throw new UserNotFoundException(userId);
         }
     }
 
-    public BigDecimal getUserBalance(Long userId) {
+    public synchronized BigDecimal getUserBalance(Long userId) {
         User user = getUserById(userId);
         return user.getBalance();
     }
 
-    public void updateUserBalance(Long userId, BigDecimal newBalance) {
+    public synchronized void updateUserBalance(Long userId, BigDecimal newBalance) {
         User user = getUserById(userId);
         user.setBalance(newBalance);
     }
+
+    /**
+     * Проверка и списание под одной блокировкой: параллельные списания не теряются.
+     * Возвращает новый баланс или null, если средств недостаточно (баланс не меняется)
+     */
+    public synchronized BigDecimal debitUserBalance(Long userId, BigDecimal amount) {
+        User user = getUserById(userId);
+        if (user.getBalance().compareTo(amount) < 0) {
+            return null;
+        }
+        user.setBalance(user.getBalance().subtract(amount));
+        return user.getBalance();
+    }
 }
@@ -1,15 +1,29 @@
 package org.pl.service;
 
+import org.pl.exception.InvalidAmountException;
 import org.pl.repository.FakeUserRepository;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 @Service
 public class UserBalanceService {
 
+    // Сколько последних ключей списаний помнить для защиты от повторов
+    private static final int MAX_REMEMBERED_DEBITS = 10_000;
+
     private final FakeUserRepository fakeUserRepository;
 
+    // Выполненные списания по ключу идемпотентности (userId:key), самые старые вытесняются
+    private final Map<String, DebitResult> completedDebits = new LinkedHashMap<>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, DebitResult> eldest) {
+            return size() > MAX_REMEMBERED_DEBITS;
+        }
+    };
+
     public UserBalanceService(FakeUserRepository fakeUserRepository) {
         this.fakeUserRepository = fakeUserRepository;
     }
@@ -21,4 +35,53 @@ public class UserBalanceService {
     public void updateUserBalance(Long userId, BigDecimal newBalance) {
         fakeUserRepository.updateUserBalance(userId, newBalance);
     }
+
+    /**
+     * Результат списания: debited = false, если средств недостаточно; balance - баланс после операции;
+     * replayed = true, если по этому ключу уже списывали и деньги повторно не списаны
+     */
+    public record DebitResult(boolean debited, BigDecimal balance, boolean replayed) {
+
+        DebitResult asReplay() {
+            return new DebitResult(debited, balance, true);
+        }
+    }
+
+    /**
+     * Списание с ключом идемпотентности: повтор с тем же ключом не списывает деньги ещё раз,
+     * а возвращает результат первого списания с пометкой replayed. Неудачные попытки не запоминаются
+     */
+    public DebitResult debitUserBalance(Long userId, BigDecimal amount, String idempotencyKey) {
+        requirePositive(amount);
+        if (idempotencyKey == null || idempotencyKey.isBlank()) {
+            return debitUserBalance(userId, amount);
+        }
+        String key = userId + ":" + idempotencyKey;
+        synchronized (completedDebits) {
+            DebitResult previous = completedDebits.get(key);
+            if (previous != null) {
+                return previous.asReplay();
+            }
+            DebitResult result = debitUserBalance(userId, amount);
+            if (result.debited()) {
+                completedDebits.put(key, result);
+            }
+            return result;
+        }
+    }
+
+    public DebitResult debitUserBalance(Long userId, BigDecimal amount) {
+        requirePositive(amount);
+        BigDecimal newBalance = fakeUserRepository.debitUserBalance(userId, amount);
+        if (newBalance == null) {
+            return new DebitResult(false, fakeUserRepository.getUserBalance(userId), false);
+        }
+        return new DebitResult(true, newBalance, false);
+    }
+
+    private static void requirePositive(BigDecimal amount) {
+        if (amount == null || amount.signum() <= 0) {
+            throw new InvalidAmountException("Amount must be positive");
+        }
+    }
 }
@@ -0,0 +1,97 @@
+package org.pl.controller;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.pl.service.UserBalanceService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.RequestBuilder;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class UserBalanceControllerTest {
+
+    private static final Long USER_ID = 1L;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserBalanceService userBalanceService;
+
+    @BeforeEach
+    void setUp() {
+        userBalanceService.updateUserBalance(USER_ID, new BigDecimal("100.00"));
+    }
+
+    @Test
+    void debit_shouldReturnNewBalance() throws Exception {
+        mockMvc.perform(debit(USER_ID, "{\"amount\": 40.00, \"idempotencyKey\": \"ok-1\"}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.userId").value(1))
+                .andExpect(jsonPath("$.balance").value(60.00))
+                .andExpect(jsonPath("$.replayed").value(false));
+    }
+
+    @Test
+    void debit_insufficientFunds_shouldReturnConflictWithCurrentBalance() throws Exception {
+        mockMvc.perform(debit(USER_ID, "{\"amount\": 100.01, \"idempotencyKey\": \"conflict-1\"}"))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.balance").value(100.00));
+
+        assertThat(userBalanceService.getUserBalance(USER_ID)).isEqualByComparingTo("100.00");
+    }
+
+    @Test
+    void debit_nonPositiveAmount_shouldReturnBadRequestWithErrorResponse() throws Exception {
+        mockMvc.perform(debit(USER_ID, "{\"amount\": 0, \"idempotencyKey\": \"zero-1\"}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.code").value("INVALID_AMOUNT"))
+                .andExpect(jsonPath("$.message").value("Amount must be positive"));
+        mockMvc.perform(debit(USER_ID, "{\"amount\": -5}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.code").value("INVALID_AMOUNT"));
+        mockMvc.perform(debit(USER_ID, "{}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.code").value("INVALID_AMOUNT"));
+
+        assertThat(userBalanceService.getUserBalance(USER_ID)).isEqualByComparingTo("100.00");
+    }
+
+    @Test
+    void debit_replayedKey_shouldNotDebitTwice() throws Exception {
+        String body = "{\"amount\": 25.00, \"idempotencyKey\": \"replay-1\"}";
+        mockMvc.perform(debit(USER_ID, body))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.replayed").value(false));
+        mockMvc.perform(debit(USER_ID, body))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.balance").value(75.00))
+                .andExpect(jsonPath("$.replayed").value(true));
+
+        assertThat(userBalanceService.getUserBalance(USER_ID)).isEqualByComparingTo("75.00");
+    }
+
+    @Test
+    void debit_unknownUser_shouldReturnNotFoundWithErrorResponse() throws Exception {
+        mockMvc.perform(debit(42L, "{\"amount\": 10.00}"))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.code").value("USER_NOT_FOUND"));
+    }
+
+    private static RequestBuilder debit(Long userId, String body) {
+        return post("/api/balance/{userId}/debit", userId)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(body);
+    }
+}
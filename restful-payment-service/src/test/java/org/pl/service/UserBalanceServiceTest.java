@@ -0,0 +1,132 @@
+package org.pl.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.pl.exception.InvalidAmountException;
+import org.pl.repository.FakeUserRepository;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class UserBalanceServiceTest {
+
+    private static final Long USER_ID = 1L;
+
+    private UserBalanceService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new UserBalanceService(new FakeUserRepository());
+        service.updateUserBalance(USER_ID, new BigDecimal("100.00"));
+    }
+
+    @Test
+    void debit_insufficientFunds_shouldKeepBalance() {
+        UserBalanceService.DebitResult result = service.debitUserBalance(USER_ID, new BigDecimal("100.01"), "key-1");
+
+        assertThat(result.debited()).isFalse();
+        assertThat(result.balance()).isEqualByComparingTo("100.00");
+        assertThat(service.getUserBalance(USER_ID)).isEqualByComparingTo("100.00");
+    }
+
+    @Test
+    void debit_nonPositiveAmount_shouldThrowAndKeepBalance() {
+        assertThatThrownBy(() -> service.debitUserBalance(USER_ID, BigDecimal.ZERO, "key-1"))
+                .isInstanceOf(InvalidAmountException.class);
+        assertThatThrownBy(() -> service.debitUserBalance(USER_ID, new BigDecimal("-5")))
+                .isInstanceOf(InvalidAmountException.class);
+        assertThatThrownBy(() -> service.debitUserBalance(USER_ID, null, "key-1"))
+                .isInstanceOf(InvalidAmountException.class);
+
+        assertThat(service.getUserBalance(USER_ID)).isEqualByComparingTo("100.00");
+    }
+
+    @Test
+    void debit_concurrently_shouldNeverOverdraw() throws Exception {
+        int threads = 200;
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<UserBalanceService.DebitResult>> futures = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            String key = "key-" + i;
+            futures.add(executor.submit(() -> {
+                start.await();
+                return service.debitUserBalance(USER_ID, BigDecimal.ONE, key);
+            }));
+        }
+        start.countDown();
+
+        int debited = 0;
+        for (Future<UserBalanceService.DebitResult> future : futures) {
+            if (future.get(10, TimeUnit.SECONDS).debited()) {
+                debited++;
+            }
+        }
+        executor.shutdown();
+
+        // Ровно 100 списаний по 1 из баланса 100, остальные отклонены
+        assertThat(debited).isEqualTo(100);
+        assertThat(service.getUserBalance(USER_ID)).isEqualByComparingTo("0.00");
+    }
+
+    @Test
+    void debit_sameKeyTwice_shouldDebitOnce() {
+        UserBalanceService.DebitResult first = service.debitUserBalance(USER_ID, new BigDecimal("30.00"), "order-1");
+        UserBalanceService.DebitResult replay = service.debitUserBalance(USER_ID, new BigDecimal("30.00"), "order-1");
+
+        assertThat(first.debited()).isTrue();
+        assertThat(first.replayed()).isFalse();
+        assertThat(replay.debited()).isTrue();
+        assertThat(replay.replayed()).isTrue();
+        assertThat(replay.balance()).isEqualByComparingTo("70.00");
+        assertThat(service.getUserBalance(USER_ID)).isEqualByComparingTo("70.00");
+    }
+
+    @Test
+    void debit_sameKeyConcurrently_shouldDebitOnce() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<UserBalanceService.DebitResult>> futures = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                return service.debitUserBalance(USER_ID, new BigDecimal("10.00"), "order-1");
+            }));
+        }
+        start.countDown();
+
+        int replayed = 0;
+        for (Future<UserBalanceService.DebitResult> future : futures) {
+            UserBalanceService.DebitResult result = future.get(10, TimeUnit.SECONDS);
+            assertThat(result.debited()).isTrue();
+            if (result.replayed()) {
+                replayed++;
+            }
+        }
+        executor.shutdown();
+
+        assertThat(replayed).isEqualTo(19);
+        assertThat(service.getUserBalance(USER_ID)).isEqualByComparingTo("90.00");
+    }
+
+    @Test
+    void debit_failedAttempt_shouldNotBeRememberedForKey() {
+        assertThat(service.debitUserBalance(USER_ID, new BigDecimal("150.00"), "order-1").debited()).isFalse();
+        service.updateUserBalance(USER_ID, new BigDecimal("200.00"));
+
+        UserBalanceService.DebitResult retry = service.debitUserBalance(USER_ID, new BigDecimal("150.00"), "order-1");
+
+        assertThat(retry.debited()).isTrue();
+        assertThat(retry.replayed()).isFalse();
+        assertThat(service.getUserBalance(USER_ID)).isEqualByComparingTo("50.00");
+    }
+}
@@ -2,8 +2,10 @@ package org.pl;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.session.SessionAutoConfiguration;
 
-@SpringBootApplication
+// Хранилище сессий выбирается свойством store.session.store в SessionConfig
+@SpringBootApplication(exclude = SessionAutoConfiguration.class)
 public class WebStoreApplication {
 
 	public static void main(String[] args) {
@@ -0,0 +1,331 @@
+package org.pl.config;
+
+import org.pl.dao.Item;
+import org.pl.dto.Cart;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Компактный бинарный формат значений Redis.
+ * Первый байт - версия формата, второй - тег типа. Для известных типов (Item, String, Long, Integer,
+ * корзина Cart и Map&lt;Long, Integer&gt;)
+ * пишутся только значения полей без имён и без имени класса; числа - varint.
+ * Остальные типы сохраняются через JSON-сериализатор под отдельным тегом.
+ * Значение неизвестной версии (например, старый JSON) читается как null, т.е. как промах кэша.
+ */
+public class CompactRedisSerializer implements RedisSerializer<Object> {
+
+    static final byte VERSION = 1;
+
+    private static final byte TAG_ITEM = 1;
+    private static final byte TAG_STRING = 2;
+    private static final byte TAG_LONG = 3;
+    private static final byte TAG_INTEGER = 4;
+    private static final byte TAG_LONG_INT_MAP = 5;
+    private static final byte TAG_CART = 6;
+    private static final byte TAG_JSON = 127;
+
+    // Биты присутствия полей Item
+    private static final int HAS_ID = 1;
+    private static final int HAS_TITLE = 1 << 1;
+    private static final int HAS_IMG_PATH = 1 << 2;
+    private static final int HAS_PRICE = 1 << 3;
+    private static final int HAS_DESCRIPTION = 1 << 4;
+
+    private final RedisSerializer<Object> fallback;
+
+    public CompactRedisSerializer() {
+        this(new GenericJackson2JsonRedisSerializer());
+    }
+
+    public CompactRedisSerializer(RedisSerializer<Object> fallback) {
+        this.fallback = fallback;
+    }
+
+    @Override
+    public byte[] serialize(Object value) throws SerializationException {
+        if (value == null) {
+            return new byte[0];
+        }
+        Writer out = new Writer(64);
+        out.writeByte(VERSION);
+        switch (value) {
+            case Item item -> {
+                out.writeByte(TAG_ITEM);
+                writeItem(out, item);
+            }
+            case String string -> {
+                out.writeByte(TAG_STRING);
+                out.writeString(string);
+            }
+            case Long number -> {
+                out.writeByte(TAG_LONG);
+                out.writeVarLong(zigZag(number));
+            }
+            case Integer number -> {
+                out.writeByte(TAG_INTEGER);
+                out.writeVarLong(zigZag(number));
+            }
+            case Cart cart -> {
+                out.writeByte(TAG_CART);
+                writeCart(out, cart);
+            }
+            case Map<?, ?> map when isLongIntMap(map) -> {
+                out.writeByte(TAG_LONG_INT_MAP);
+                out.writeVarLong(map.size());
+                map.forEach((key, count) -> {
+                    out.writeVarLong(zigZag((Long) key));
+                    out.writeVarLong(zigZag((Integer) count));
+                });
+            }
+            default -> {
+                out.writeByte(TAG_JSON);
+                out.writeBytes(fallback.serialize(value));
+            }
+        }
+        return out.toByteArray();
+    }
+
+    @Override
+    public Object deserialize(byte[] bytes) throws SerializationException {
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+        if (bytes.length < 2 || bytes[0] != VERSION) {
+            return null;
+        }
+        Reader in = new Reader(bytes, 2);
+        try {
+            return switch (bytes[1]) {
+                case TAG_ITEM -> readItem(in);
+                case TAG_STRING -> in.readString();
+                case TAG_LONG -> unZigZag(in.readVarLong());
+                case TAG_INTEGER -> (int) unZigZag(in.readVarLong());
+                case TAG_LONG_INT_MAP -> readLongIntMap(in);
+                case TAG_CART -> readCart(in);
+                case TAG_JSON -> fallback.deserialize(Arrays.copyOfRange(bytes, 2, bytes.length));
+                default -> null;
+            };
+        } catch (ArrayIndexOutOfBoundsException e) {
+            throw new SerializationException("Truncated compact value", e);
+        }
+    }
+
+    private static void writeItem(Writer out, Item item) {
+        int flags = (item.getId() != null ? HAS_ID : 0)
+                | (item.getTitle() != null ? HAS_TITLE : 0)
+                | (item.getImgPath() != null ? HAS_IMG_PATH : 0)
+                | (item.getPrice() != null ? HAS_PRICE : 0)
+                | (item.getDescription() != null ? HAS_DESCRIPTION : 0);
+        out.writeByte((byte) flags);
+        if (item.getId() != null) {
+            out.writeVarLong(zigZag(item.getId()));
+        }
+        if (item.getTitle() != null) {
+            out.writeString(item.getTitle());
+        }
+        if (item.getImgPath() != null) {
+            out.writeString(item.getImgPath());
+        }
+        if (item.getPrice() != null) {
+            BigDecimal price = item.getPrice();
+            out.writeVarLong(zigZag(price.scale()));
+            byte[] unscaled = price.unscaledValue().toByteArray();
+            out.writeVarLong(unscaled.length);
+            out.writeBytes(unscaled);
+        }
+        if (item.getDescription() != null) {
+            out.writeString(item.getDescription());
+        }
+    }
+
+    private static Item readItem(Reader in) {
+        int flags = in.readByte();
+        Item item = new Item();
+        if ((flags & HAS_ID) != 0) {
+            item.setId(unZigZag(in.readVarLong()));
+        }
+        if ((flags & HAS_TITLE) != 0) {
+            item.setTitle(in.readString());
+        }
+        if ((flags & HAS_IMG_PATH) != 0) {
+            item.setImgPath(in.readString());
+        }
+        if ((flags & HAS_PRICE) != 0) {
+            int scale = (int) unZigZag(in.readVarLong());
+            byte[] unscaled = in.readBytes((int) in.readVarLong());
+            item.setPrice(new BigDecimal(new BigInteger(unscaled), scale));
+        }
+        if ((flags & HAS_DESCRIPTION) != 0) {
+            item.setDescription(in.readString());
+        }
+        return item;
+    }
+
+    /**
+     * Карта id -> количество (корзина); пустая карта тоже подходит
+     */
+    private static boolean isLongIntMap(Map<?, ?> map) {
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+            if (!(entry.getKey() instanceof Long) || !(entry.getValue() instanceof Integer)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Map<Long, Integer> readLongIntMap(Reader in) {
+        int size = (int) in.readVarLong();
+        Map<Long, Integer> map = new HashMap<>(Math.max(4, size * 2));
+        for (int i = 0; i < size; i++) {
+            map.put(unZigZag(in.readVarLong()), (int) unZigZag(in.readVarLong()));
+        }
+        return map;
+    }
+
+    /**
+     * Корзина: число позиций, затем id как разность с предыдущим (id отсортированы, разности малы)
+     * и количество - по varint на значение
+     */
+    private static void writeCart(Writer out, Cart cart) {
+        int lines = cart.lineCount();
+        out.writeVarLong(lines);
+        long previous = 0;
+        for (int i = 0; i < lines; i++) {
+            long itemId = cart.itemIdAt(i);
+            out.writeVarLong(zigZag(itemId - previous));
+            out.writeVarLong(zigZag(cart.quantityAt(i)));
+            previous = itemId;
+        }
+    }
+
+    private static Cart readCart(Reader in) {
+        long lines = in.readVarLong();
+        if (lines < 0 || lines > in.remaining() / 2) {
+            throw new SerializationException("Corrupted cart value: " + lines + " lines");
+        }
+        long[] itemIds = new long[(int) lines];
+        int[] quantities = new int[(int) lines];
+        long previous = 0;
+        for (int i = 0; i < lines; i++) {
+            previous += unZigZag(in.readVarLong());
+            itemIds[i] = previous;
+            quantities[i] = (int) unZigZag(in.readVarLong());
+        }
+        try {
+            return Cart.fromSorted(itemIds, quantities, (int) lines);
+        } catch (IllegalArgumentException e) {
+            throw new SerializationException("Corrupted cart value", e);
+        }
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static final class Writer {
+        private byte[] buffer;
+        private int size;
+
+        Writer(int capacity) {
+            this.buffer = new byte[capacity];
+        }
+
+        void writeByte(byte value) {
+            ensure(1);
+            buffer[size++] = value;
+        }
+
+        void writeBytes(byte[] bytes) {
+            ensure(bytes.length);
+            System.arraycopy(bytes, 0, buffer, size, bytes.length);
+            size += bytes.length;
+        }
+
+        void writeVarLong(long value) {
+            ensure(10);
+            while ((value & ~0x7FL) != 0) {
+                buffer[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[size++] = (byte) value;
+        }
+
+        void writeString(String value) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarLong(bytes.length);
+            writeBytes(bytes);
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buffer, size);
+        }
+
+        private void ensure(int extra) {
+            if (size + extra > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + extra));
+            }
+        }
+    }
+
+    private static final class Reader {
+        private final byte[] buffer;
+        private int position;
+
+        Reader(byte[] buffer, int position) {
+            this.buffer = buffer;
+            this.position = position;
+        }
+
+        int readByte() {
+            return buffer[position++] & 0xFF;
+        }
+
+        int remaining() {
+            return buffer.length - position;
+        }
+
+        byte[] readBytes(int length) {
+            if (position + length > buffer.length) {
+                throw new ArrayIndexOutOfBoundsException(position + length);
+            }
+            byte[] bytes = Arrays.copyOfRange(buffer, position, position + length);
+            position += length;
+            return bytes;
+        }
+
+        long readVarLong() {
+            long result = 0;
+            int shift = 0;
+            int b;
+            do {
+                b = readByte();
+                result |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            return result;
+        }
+
+        String readString() {
+            int length = (int) readVarLong();
+            if (position + length > buffer.length) {
+                throw new ArrayIndexOutOfBoundsException(position + length);
+            }
+            String value = new String(buffer, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return value;
+        }
+    }
+}
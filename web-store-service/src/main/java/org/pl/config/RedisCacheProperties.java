@@ -0,0 +1,95 @@
+package org.pl.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Время жизни ключей Redis по семействам (item, ...), случайный разброс TTL
+ * и порог упреждающего обновления (refresh-ahead).
+ *
+ * <pre>
+ * store.cache.redis.default-ttl=10s
+ * store.cache.redis.ttl.item=30s
+ * store.cache.redis.ttl.missing=30s
+ * store.cache.redis.jitter=0.2
+ * store.cache.redis.refresh-ahead=0.8
+ * </pre>
+ */
+@ConfigurationProperties(prefix = "store.cache.redis")
+public class RedisCacheProperties {
+
+    public static final String ITEM = "item";
+    public static final String MISSING = "missing";
+
+    private Duration defaultTtl = Duration.ofSeconds(10);
+    private Map<String, Duration> ttl = new HashMap<>();
+    private double jitter = 0.2;
+    private double refreshAhead = 0.8;
+
+    /**
+     * Базовый TTL семейства ключей
+     */
+    public Duration ttlFor(String family) {
+        return ttl.getOrDefault(family, defaultTtl);
+    }
+
+    /**
+     * TTL со случайным разбросом ±jitter, чтобы ключи, записанные одновременно, не истекали одновременно
+     */
+    public Duration jitteredTtlFor(String family) {
+        Duration base = ttlFor(family);
+        if (jitter <= 0) {
+            return base;
+        }
+        double factor = 1 + ThreadLocalRandom.current().nextDouble(-jitter, jitter);
+        return Duration.ofMillis(Math.max(1, Math.round(base.toMillis() * factor)));
+    }
+
+    /**
+     * Пора ли обновить ключ заранее: прошла доля refreshAhead от базового TTL.
+     * Отрицательный остаток (ключ без TTL) обновления не требует.
+     */
+    public boolean shouldRefresh(String family, Duration remaining) {
+        if (remaining == null || remaining.isNegative() || refreshAhead <= 0 || refreshAhead >= 1) {
+            return false;
+        }
+        long threshold = Math.round(ttlFor(family).toMillis() * (1 - refreshAhead));
+        return remaining.toMillis() <= threshold;
+    }
+
+    public Duration getDefaultTtl() {
+        return defaultTtl;
+    }
+
+    public void setDefaultTtl(Duration defaultTtl) {
+        this.defaultTtl = defaultTtl;
+    }
+
+    public Map<String, Duration> getTtl() {
+        return ttl;
+    }
+
+    public void setTtl(Map<String, Duration> ttl) {
+        this.ttl = ttl;
+    }
+
+    public double getJitter() {
+        return jitter;
+    }
+
+    public void setJitter(double jitter) {
+        this.jitter = jitter;
+    }
+
+    public double getRefreshAhead() {
+        return refreshAhead;
+    }
+
+    public void setRefreshAhead(double refreshAhead) {
+        this.refreshAhead = refreshAhead;
+    }
+}
@@ -1,28 +1,46 @@
 package org.pl.config;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.connection.ReactiveRedisConnectionFactory;
 import org.springframework.data.redis.core.ReactiveRedisTemplate;
 import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
 import org.springframework.data.redis.serializer.RedisSerializationContext;
+import org.springframework.data.redis.serializer.RedisSerializer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 
 @Configuration
+@EnableConfigurationProperties(RedisCacheProperties.class)
 public class RedisConfig {
 
+    /**
+     * Формат значений в Redis: binary - компактный CompactRedisSerializer,
+     * json - GenericJackson2JsonRedisSerializer (удобно читать глазами при отладке)
+     */
+    @Bean
+    public RedisSerializer<Object> redisValueSerializer(@Value("${store.redis.codec:binary}") String codec) {
+        return switch (codec) {
+            case "binary" -> new CompactRedisSerializer();
+            case "json" -> new GenericJackson2JsonRedisSerializer();
+            default -> throw new IllegalStateException("Unexpected value: " + codec);
+        };
+    }
+
     @Bean
     public ReactiveRedisTemplate<String, Object> reactiveRedisTemplate(
-            ReactiveRedisConnectionFactory factory) {
+            ReactiveRedisConnectionFactory factory,
+            RedisSerializer<Object> redisValueSerializer) {
 
         RedisSerializationContext<String, Object> context =
                 RedisSerializationContext.<String, Object>newSerializationContext()
                         .key(StringRedisSerializer.UTF_8)
-                        .value(new GenericJackson2JsonRedisSerializer())
+                        .value(redisValueSerializer)
                         .hashKey(StringRedisSerializer.UTF_8)
-                        .hashValue(new GenericJackson2JsonRedisSerializer())
+                        .hashValue(redisValueSerializer)
                         .build();
 
         return new ReactiveRedisTemplate<>(factory, context);
     }
-}
\ No newline at end of file
+}
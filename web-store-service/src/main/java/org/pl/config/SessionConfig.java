@@ -0,0 +1,40 @@
+package org.pl.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.session.config.ReactiveSessionRepositoryCustomizer;
+import org.springframework.session.data.redis.ReactiveRedisSessionRepository;
+import org.springframework.session.data.redis.config.annotation.web.server.EnableRedisWebSession;
+
+import java.time.Duration;
+
+/**
+ * WebSession в Redis: корзина не привязана к одному узлу и переживает перезапуск,
+ * любой экземпляр сервиса обслуживает любой запрос.
+ * Атрибуты сессии хранятся в компактном бинарном формате, время жизни без активности - store.session.timeout.
+ * store.session.store=memory возвращает стандартные сессии в памяти (для тестов и локального запуска без Redis).
+ */
+@Configuration
+@ConditionalOnProperty(name = "store.session.store", havingValue = "redis", matchIfMissing = true)
+@EnableRedisWebSession
+public class SessionConfig {
+
+    @Bean("springSessionDefaultRedisSerializer")
+    public RedisSerializer<Object> springSessionDefaultRedisSerializer() {
+        return new CompactRedisSerializer();
+    }
+
+    @Bean
+    public ReactiveSessionRepositoryCustomizer<ReactiveRedisSessionRepository> sessionRepositoryCustomizer(
+            @Value("${store.session.timeout:30m}") Duration timeout,
+            @Value("${store.session.namespace:store:session}") String namespace
+    ) {
+        return repository -> {
+            repository.setDefaultMaxInactiveInterval(timeout);
+            repository.setRedisKeyNamespace(namespace);
+        };
+    }
+}
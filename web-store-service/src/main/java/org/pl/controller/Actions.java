@@ -3,6 +3,7 @@ package org.pl.controller;
 final class Actions {
     static final String itemsAction = "/items";
     static final String itemsToCartAction = itemsAction + "/cart";
+    static final String itemsSuggestAction = itemsAction + "/suggest";
     static final String cartAction = "/cart";
     static final String ordersAction = "/orders";
     static final String buyAction = "/buy";
@@ -2,6 +2,7 @@ package org.pl.controller;
 
 import org.pl.exception.*;
 import org.pl.service.CartService;
+import org.pl.service.CheckoutIdempotencyService;
 import org.pl.service.SessionItemsCountsService;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -21,13 +22,16 @@ public class CartController {
 
     private final CartService cartService;
     private final SessionItemsCountsService sessionItemsCountsService;
+    private final CheckoutIdempotencyService checkoutIdempotencyService;
 
     public CartController(
             CartService cartService,
-            SessionItemsCountsService sessionItemsCountsService
+            SessionItemsCountsService sessionItemsCountsService,
+            CheckoutIdempotencyService checkoutIdempotencyService
     ) {
         this.cartService = cartService;
         this.sessionItemsCountsService = sessionItemsCountsService;
+        this.checkoutIdempotencyService = checkoutIdempotencyService;
     }
 
     @GetMapping(cartAction)
@@ -65,6 +69,7 @@ public class CartController {
                             .modelAttribute("itemsAction", itemsAction)
                             .modelAttribute("buyAction", buyAction)
                             .modelAttribute("totalItemsSum", totalItemsSum)
+                            .modelAttribute("checkoutToken", CheckoutIdempotencyService.newToken())
                             .modelAttribute("toastMessage", toastMessage)
                             .modelAttribute("toastType", toastType)
                             .build();
@@ -90,7 +95,8 @@ public class CartController {
     public Mono<String> buyItems(ServerWebExchange exchange) {
         return exchange.getSession()
                 .flatMap(session -> {
-                    return cartService.createSaveOrders(exchange)
+                    // Повтор формы или запроса с тем же ключом вернёт уже оформленный заказ
+                    return checkoutIdempotencyService.execute(exchange, () -> cartService.createSaveOrders(exchange))
                             .flatMap(savedOrder -> {
                                 session.getAttributes().put("toastMessage",
                                         "Заказ №" + savedOrder.getOrderNumber() + " успешно оформлен!");
@@ -115,7 +121,7 @@ public class CartController {
     ) {
         return exchange.getSession()
                 .flatMap(session -> {
-                    return cartService.createSaveOrder(id, exchange)
+                    return checkoutIdempotencyService.execute(exchange, () -> cartService.createSaveOrder(id, exchange))
                             .flatMap(savedOrder -> {
                                 session.getAttributes().put("toastMessage",
                                         "Заказ №" + savedOrder.getOrderNumber() + " успешно оформлен!");
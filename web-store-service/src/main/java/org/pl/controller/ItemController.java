@@ -1,9 +1,14 @@
 package org.pl.controller;
 
 import org.pl.dao.Item;
+import org.pl.dto.ItemCursor;
+import org.pl.dto.ItemSuggestionDto;
+import org.pl.dto.ItemsCursorPage;
 import org.pl.dto.PagingInfoDto;
+import org.pl.repository.ItemSort;
+import org.pl.service.CheckoutIdempotencyService;
+import org.pl.service.ItemCacheService;
 import org.pl.service.ItemService;
-import org.pl.service.RedisCacheItemService;
 import org.pl.service.SessionItemsCountsService;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
@@ -15,6 +20,7 @@ import org.springframework.web.server.ServerWebExchange;
 import reactor.core.publisher.Mono;
 
 import java.util.List;
+import java.util.Map;
 
 import static org.pl.controller.Actions.*;
 
@@ -23,16 +29,18 @@ import static org.pl.controller.Actions.*;
 @RequestMapping()
 public class ItemController {
 
-    private final RedisCacheItemService redisCacheItemService;
+    private static final int MAX_SUGGESTIONS = 20;
+
+    private final ItemCacheService itemCacheService;
     private final ItemService itemService;
     private final SessionItemsCountsService sessionItemsCountsService;
 
     public ItemController(
-            RedisCacheItemService redisCacheItemService,
+            ItemCacheService itemCacheService,
             ItemService itemService,
             SessionItemsCountsService sessionItemsCountsService
     ) {
-        this.redisCacheItemService = redisCacheItemService;
+        this.itemCacheService = itemCacheService;
         this.itemService = itemService;
         this.sessionItemsCountsService = sessionItemsCountsService;
     }
@@ -48,8 +56,40 @@ public class ItemController {
             @RequestParam(defaultValue = "5") int pageSize,
             @RequestParam(defaultValue = "NO") String sort,
             @RequestParam(required = false) String search,
+            @RequestParam(required = false) String cursor,
             ServerWebExchange exchange
     ) {
+        // Курсор действителен только для той сортировки, с которой он был выдан
+        ItemCursor itemCursor = ItemCursor.decode(cursor);
+        if (itemCursor != null && itemCursor.sort().name().equals(sort)) {
+            return Mono.zip(
+                            itemService.getItemsByCursor(itemCursor, pageSize, search),
+                            sessionItemsCountsService.getCartItems(exchange),
+                            sessionItemsCountsService.checkItemsCount(exchange)
+                    )
+                    .map(tuple -> {
+                        ItemsCursorPage cursorPage = tuple.getT1();
+
+                        return renderItems(
+                                cursorPage.content(),
+                                new PagingInfoDto(
+                                        cursorPage.pageNumber(),
+                                        0,
+                                        cursorPage.pageSize(),
+                                        cursorPage.hasPrevious(),
+                                        cursorPage.hasNext(),
+                                        cursorPage.prevCursor(),
+                                        cursorPage.nextCursor()
+                                ),
+                                sort,
+                                search,
+                                cursor,
+                                tuple.getT2(),
+                                tuple.getT3()
+                        );
+                    });
+        }
+
         Pageable pageable = PageRequest.of(pageNumber - 1, pageSize);
 
         return Mono.zip(
@@ -62,27 +102,70 @@ public class ItemController {
                     var cartItems = tuple.getT2();
                     Integer totalItemsCounts = tuple.getT3();
 
-                    return Rendering.view("items")
-                            .modelAttribute("items", itemPage.getContent())
-                            .modelAttribute("sort", sort)
-                            .modelAttribute("search", search)
-                            .modelAttribute("cartItems", cartItems)
-                            .modelAttribute("totalItemsCounts", totalItemsCounts)
-                            .modelAttribute("paging", new PagingInfoDto(
+                    // Курсоры соседних страниц, чтобы дальше листать без OFFSET
+                    ItemSort itemSort = ItemSort.of(sort);
+                    List<List<Item>> content = itemPage.getContent();
+                    String prevCursor = itemPage.hasPrevious() && !content.isEmpty()
+                            ? ItemCursor.before(itemSort, content.getFirst().getFirst(), itemPage.getNumber()).encode()
+                            : null;
+                    String nextCursor = itemPage.hasNext() && !content.isEmpty()
+                            ? ItemCursor.after(itemSort, content.getLast().getLast(), itemPage.getNumber() + 2).encode()
+                            : null;
+
+                    return renderItems(
+                            content,
+                            new PagingInfoDto(
                                     itemPage.getNumber() + 1,
                                     itemPage.getTotalPages(),
                                     itemPage.getSize(),
                                     itemPage.hasPrevious(),
-                                    itemPage.hasNext()
-                            ))
-                            .modelAttribute("ordersAction", ordersAction)
-                            .modelAttribute("cartAction", cartAction)
-                            .modelAttribute("itemsAction", itemsAction)
-                            .modelAttribute("itemsToCartAction", itemsToCartAction)
-                            .build();
+                                    itemPage.hasNext(),
+                                    prevCursor,
+                                    nextCursor
+                            ),
+                            sort,
+                            search,
+                            null,
+                            cartItems,
+                            totalItemsCounts
+                    );
                 });
     }
 
+    private Rendering renderItems(
+            List<List<Item>> items,
+            PagingInfoDto paging,
+            String sort,
+            String search,
+            String cursor,
+            Map<Long, Integer> cartItems,
+            Integer totalItemsCounts
+    ) {
+        return Rendering.view("items")
+                .modelAttribute("items", items)
+                .modelAttribute("sort", sort)
+                .modelAttribute("search", search)
+                .modelAttribute("cursor", cursor)
+                .modelAttribute("cartItems", cartItems)
+                .modelAttribute("totalItemsCounts", totalItemsCounts)
+                .modelAttribute("paging", paging)
+                .modelAttribute("ordersAction", ordersAction)
+                .modelAttribute("cartAction", cartAction)
+                .modelAttribute("itemsAction", itemsAction)
+                .modelAttribute("itemsToCartAction", itemsToCartAction)
+                .modelAttribute("itemsSuggestAction", itemsSuggestAction)
+                .build();
+    }
+
+    @GetMapping(itemsSuggestAction)
+    @ResponseBody
+    public Mono<List<ItemSuggestionDto>> suggest(
+            @RequestParam(defaultValue = "") String q,
+            @RequestParam(defaultValue = "10") int limit
+    ) {
+        return itemService.suggest(q, Math.clamp(limit, 1, MAX_SUGGESTIONS));
+    }
+
     @PostMapping(value = itemsAction)
     public Mono<String> increaseDecreaseItemsCount(ServerWebExchange exchange) {
         return exchange.getFormData()
@@ -95,6 +178,7 @@ public class ItemController {
                         String sort = formData.getFirst("sort");
                         String pageSizeStr = formData.getFirst("pageSize");
                         String pageNumberStr = formData.getFirst("pageNumber");
+                        String cursor = formData.getFirst("cursor");
 
                         // Проверяем обязательные поля
                         if (idStr == null || idStr.trim().isEmpty()) {
@@ -115,7 +199,7 @@ public class ItemController {
 
                         // Выполняем действие и редирект
                         return sessionItemsCountsService.updateItemCount(exchange, id, action)
-                                .thenReturn(buildRedirectUrl(pageNumber, pageSize, sort, search));
+                                .thenReturn(buildRedirectUrl(pageNumber, pageSize, sort, search, cursor));
 
                     } catch (NumberFormatException e) {
                         return Mono.error(new IllegalArgumentException("Invalid number format", e));
@@ -140,7 +224,7 @@ public class ItemController {
         }
     }
 
-    private String buildRedirectUrl(int pageNumber, int pageSize, String sort, String search) {
+    private String buildRedirectUrl(int pageNumber, int pageSize, String sort, String search, String cursor) {
         StringBuilder url = new StringBuilder("redirect:").append(itemsAction);
         url.append("?pageNumber=").append(pageNumber);
         url.append("&pageSize=").append(pageSize);
@@ -151,6 +235,9 @@ public class ItemController {
         if (search != null && !search.trim().isEmpty()) {
             url.append("&search=").append(search);
         }
+        if (cursor != null && !cursor.isBlank()) {
+            url.append("&cursor=").append(cursor.trim());
+        }
 
         return url.toString();
     }
@@ -168,20 +255,9 @@ public class ItemController {
             @PathVariable Long id,
             ServerWebExchange exchange
     ) {
-        // Получаем item из кэша или БД
-        Mono<Item> itemMono = redisCacheItemService.getItemFromCache(id)
-                .switchIfEmpty(Mono.defer(() ->
-                        itemService.getItemById(id)
-                                .switchIfEmpty(Mono.error(new RuntimeException("Item not found")))
-                                .flatMap(item ->
-                                        // Сохраняем в кэш и возвращаем item
-                                        redisCacheItemService.saveItemToCache(item).thenReturn(item)
-                                )
-                ));
-
+        // Товар из локального кэша, Redis или БД: при попадании в кэш к БД не обращаемся
         return Mono.zip(
-                        itemMono,
-                        itemService.getItemById(id).switchIfEmpty(Mono.error(new RuntimeException("Item not found"))),
+                        itemCacheService.getRequiredItem(id),
                         sessionItemsCountsService.getCartItems(exchange),
                         sessionItemsCountsService.checkItemsCount(exchange),
                         exchange.getSession()
@@ -190,10 +266,10 @@ public class ItemController {
 
                     Item item = tuple.getT1();
 
-                    var cartItems = tuple.getT3();
-                    Integer totalItemsCounts = tuple.getT4();
+                    var cartItems = tuple.getT2();
+                    Integer totalItemsCounts = tuple.getT3();
                     Integer itemCount = cartItems.get(id);
-                    var session = tuple.getT5();
+                    var session = tuple.getT4();
 
                     // Получаем toast из сессии
                     String toastMessage = (String) session.getAttributes().get("toastMessage");
@@ -212,6 +288,7 @@ public class ItemController {
                             .modelAttribute("itemsToCartAction", itemsToCartAction)
                             .modelAttribute("totalItemsCounts", totalItemsCounts)
                             .modelAttribute("buyAction", buyAction)
+                            .modelAttribute("checkoutToken", CheckoutIdempotencyService.newToken())
                             .modelAttribute("toastMessage", toastMessage)
                             .modelAttribute("toastType", toastType)
                             .build();
@@ -18,6 +18,8 @@ public class Order {
     private BigDecimal totalAmount;
     @Column("order_date")
     private LocalDateTime orderDate;
+    @Column("idempotency_key")
+    private String idempotencyKey;
 
     public Order() {
     }
@@ -59,4 +61,12 @@ public class Order {
     public void setOrderDate(LocalDateTime orderDate) {
         this.orderDate = orderDate;
     }
+
+    public String getIdempotencyKey() {
+        return idempotencyKey;
+    }
+
+    public void setIdempotencyKey(String idempotencyKey) {
+        this.idempotencyKey = idempotencyKey;
+    }
 }
@@ -0,0 +1,305 @@
+package org.pl.dto;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Корзина: id товара -> количество на двух параллельных массивах long[]/int[], отсортированных по id.
+ * Поиск - двоичный, общее количество единиц хранится готовым и обновляется при каждом изменении.
+ * Для обхода без создания объектов есть lineCount/itemIdAt/quantityAt; интерфейс Map оставлен
+ * для совместимости с кодом, который работает с корзиной как с картой (записи создаются только при обходе entrySet).
+ * Не потокобезопасна, как и HashMap.
+ */
+public class Cart extends AbstractMap<Long, Integer> implements Serializable {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    private static final int INITIAL_CAPACITY = 8;
+
+    private transient long[] itemIds;
+    private transient int[] quantities;
+    private transient int size;
+    private transient int totalQuantity;
+
+    public Cart() {
+        this(INITIAL_CAPACITY);
+    }
+
+    public Cart(int capacity) {
+        this.itemIds = new long[Math.max(1, capacity)];
+        this.quantities = new int[Math.max(1, capacity)];
+    }
+
+    /**
+     * Корзина из произвольной карты (например, сохранённой в сессии до появления Cart)
+     */
+    public static Cart copyOf(Map<Long, Integer> items) {
+        if (items instanceof Cart cart) {
+            return cart.copy();
+        }
+        Cart cart = new Cart(items.size());
+        items.forEach((itemId, quantity) -> cart.set(itemId, quantity));
+        return cart;
+    }
+
+    /**
+     * Корзина из уже отсортированных по возрастанию id массивов (используется при чтении из хранилища)
+     */
+    public static Cart fromSorted(long[] itemIds, int[] quantities, int size) {
+        Cart cart = new Cart(size);
+        for (int i = 0; i < size; i++) {
+            if (i > 0 && itemIds[i] <= itemIds[i - 1]) {
+                throw new IllegalArgumentException("Item ids must be strictly ascending");
+            }
+            cart.itemIds[i] = itemIds[i];
+            cart.quantities[i] = quantities[i];
+            cart.totalQuantity += quantities[i];
+        }
+        cart.size = size;
+        return cart;
+    }
+
+    public Cart copy() {
+        return fromSorted(itemIds, quantities, size);
+    }
+
+    public int lineCount() {
+        return size;
+    }
+
+    public long itemIdAt(int index) {
+        return itemIds[index];
+    }
+
+    public int quantityAt(int index) {
+        return quantities[index];
+    }
+
+    /**
+     * Общее количество единиц товара во всех позициях
+     */
+    public int totalQuantity() {
+        return totalQuantity;
+    }
+
+    /**
+     * Количество товара в корзине, 0 если позиции нет
+     */
+    public int quantity(long itemId) {
+        int index = indexOf(itemId);
+        return index >= 0 ? quantities[index] : 0;
+    }
+
+    public boolean contains(long itemId) {
+        return indexOf(itemId) >= 0;
+    }
+
+    /**
+     * Устанавливает количество товара; возвращает прежнее значение или 0
+     */
+    public int set(long itemId, int quantity) {
+        int index = indexOf(itemId);
+        if (index >= 0) {
+            int previous = quantities[index];
+            quantities[index] = quantity;
+            totalQuantity += quantity - previous;
+            return previous;
+        }
+        int insertAt = -index - 1;
+        ensureCapacity(size + 1);
+        System.arraycopy(itemIds, insertAt, itemIds, insertAt + 1, size - insertAt);
+        System.arraycopy(quantities, insertAt, quantities, insertAt + 1, size - insertAt);
+        itemIds[insertAt] = itemId;
+        quantities[insertAt] = quantity;
+        size++;
+        totalQuantity += quantity;
+        return 0;
+    }
+
+    /**
+     * Удаляет позицию; false, если её не было
+     */
+    public boolean removeLine(long itemId) {
+        int index = indexOf(itemId);
+        if (index < 0) {
+            return false;
+        }
+        removeAt(index);
+        return true;
+    }
+
+    /**
+     * Удаляет позиции с нулевым количеством за один проход; true, если что-то удалено
+     */
+    public boolean removeEmptyLines() {
+        int target = 0;
+        for (int i = 0; i < size; i++) {
+            if (quantities[i] != 0) {
+                itemIds[target] = itemIds[i];
+                quantities[target] = quantities[i];
+                target++;
+            }
+        }
+        boolean removed = target != size;
+        size = target;
+        return removed;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return key instanceof Long itemId && contains(itemId);
+    }
+
+    @Override
+    public Integer get(Object key) {
+        if (!(key instanceof Long itemId)) {
+            return null;
+        }
+        int index = indexOf(itemId);
+        return index >= 0 ? quantities[index] : null;
+    }
+
+    @Override
+    public Integer getOrDefault(Object key, Integer defaultValue) {
+        Integer quantity = get(key);
+        return quantity != null ? quantity : defaultValue;
+    }
+
+    @Override
+    public Integer put(Long itemId, Integer quantity) {
+        int index = indexOf(itemId);
+        Integer previous = index >= 0 ? quantities[index] : null;
+        set(itemId, quantity);
+        return previous;
+    }
+
+    @Override
+    public Integer remove(Object key) {
+        if (!(key instanceof Long itemId)) {
+            return null;
+        }
+        int index = indexOf(itemId);
+        if (index < 0) {
+            return null;
+        }
+        int previous = quantities[index];
+        removeAt(index);
+        return previous;
+    }
+
+    @Override
+    public void clear() {
+        size = 0;
+        totalQuantity = 0;
+    }
+
+    @Override
+    public Set<Entry<Long, Integer>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<Entry<Long, Integer>> iterator() {
+                return new EntryIterator();
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    private int indexOf(long itemId) {
+        return Arrays.binarySearch(itemIds, 0, size, itemId);
+    }
+
+    private void removeAt(int index) {
+        totalQuantity -= quantities[index];
+        System.arraycopy(itemIds, index + 1, itemIds, index, size - index - 1);
+        System.arraycopy(quantities, index + 1, quantities, index, size - index - 1);
+        size--;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > itemIds.length) {
+            int newCapacity = Math.max(capacity, itemIds.length * 2);
+            itemIds = Arrays.copyOf(itemIds, newCapacity);
+            quantities = Arrays.copyOf(quantities, newCapacity);
+        }
+    }
+
+    private final class EntryIterator implements Iterator<Entry<Long, Integer>> {
+        private int next;
+        private int last = -1;
+
+        @Override
+        public boolean hasNext() {
+            return next < size;
+        }
+
+        @Override
+        public Entry<Long, Integer> next() {
+            if (next >= size) {
+                throw new NoSuchElementException();
+            }
+            last = next++;
+            int index = last;
+            return new SimpleEntry<>(itemIds[index], quantities[index]) {
+                @Override
+                public Integer setValue(Integer quantity) {
+                    super.setValue(quantity);
+                    return set(itemIds[index], quantity);
+                }
+            };
+        }
+
+        @Override
+        public void remove() {
+            if (last < 0) {
+                throw new IllegalStateException();
+            }
+            removeAt(last);
+            next = last;
+            last = -1;
+        }
+    }
+
+    @Serial
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        out.writeInt(size);
+        for (int i = 0; i < size; i++) {
+            out.writeLong(itemIds[i]);
+            out.writeInt(quantities[i]);
+        }
+    }
+
+    @Serial
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        int count = in.readInt();
+        itemIds = new long[Math.max(1, count)];
+        quantities = new int[Math.max(1, count)];
+        for (int i = 0; i < count; i++) {
+            itemIds[i] = in.readLong();
+            quantities[i] = in.readInt();
+            totalQuantity += quantities[i];
+        }
+        size = count;
+    }
+}
@@ -0,0 +1,15 @@
+package org.pl.dto;
+
+import org.pl.dao.Item;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Содержимое корзины для страницы /cart: товары позиций, стоимость каждой позиции и итог.
+ * cartItems - снимок корзины, по которому построено представление
+ */
+public record CartView(Map<Long, Integer> cartItems, List<Item> items, Map<Long, BigDecimal> subtotals,
+                       BigDecimal total) {
+}
@@ -0,0 +1,76 @@
+package org.pl.dto;
+
+import org.pl.dao.Item;
+import org.pl.repository.ItemSort;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Курсор для keyset-пагинации витрины.
+ * Хранит последний (или первый для обратного хода) увиденный ключ сортировки и id,
+ * а также номер страницы, на которую ведёт. Наружу отдаётся как непрозрачный токен.
+ */
+public record ItemCursor(ItemSort sort, boolean backward, int pageNumber, long id, String key) {
+
+    private static final String SEPARATOR = "|";
+
+    public static ItemCursor after(ItemSort sort, Item lastItem, int pageNumber) {
+        return new ItemCursor(sort, false, pageNumber, lastItem.getId(), keyToString(sort.keyOf(lastItem)));
+    }
+
+    public static ItemCursor before(ItemSort sort, Item firstItem, int pageNumber) {
+        return new ItemCursor(sort, true, pageNumber, firstItem.getId(), keyToString(sort.keyOf(firstItem)));
+    }
+
+    public Object parsedKey() {
+        return key == null ? null : sort.parseKey(key);
+    }
+
+    public String encode() {
+        String raw = sort.name() + SEPARATOR
+                + (backward ? "B" : "F") + SEPARATOR
+                + pageNumber + SEPARATOR
+                + id + SEPARATOR
+                + (key == null ? "" : key);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Разбирает токен; для пустого или повреждённого токена возвращает null
+     */
+    public static ItemCursor decode(String token) {
+        if (token == null || token.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token.trim()), StandardCharsets.UTF_8);
+            // ключ идёт последним, поэтому может содержать разделитель
+            String[] parts = raw.split("\\|", 5);
+            if (parts.length != 5) {
+                return null;
+            }
+            ItemSort sort = ItemSort.valueOf(parts[0]);
+            String key = sort.getKeyColumn() == null ? null : parts[4];
+            ItemCursor cursor = new ItemCursor(
+                    sort,
+                    "B".equals(parts[1]),
+                    Integer.parseInt(parts[2]),
+                    Long.parseLong(parts[3]),
+                    key
+            );
+            cursor.parsedKey();
+            return cursor;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static String keyToString(Object key) {
+        if (key == null) {
+            return null;
+        }
+        return key instanceof BigDecimal decimal ? decimal.toPlainString() : key.toString();
+    }
+}
@@ -0,0 +1,4 @@
+package org.pl.dto;
+
+public record ItemSuggestionDto(Long id, String title) {
+}
@@ -0,0 +1,16 @@
+package org.pl.dto;
+
+import org.pl.dao.Item;
+
+import java.util.List;
+
+public record ItemsCursorPage(
+        List<List<Item>> content,
+        int pageNumber,
+        int pageSize,
+        boolean hasPrevious,
+        boolean hasNext,
+        String prevCursor,
+        String nextCursor
+) {
+}
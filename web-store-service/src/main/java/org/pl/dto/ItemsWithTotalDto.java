@@ -0,0 +1,12 @@
+package org.pl.dto;
+
+import org.pl.dao.Item;
+
+import java.util.List;
+
+/**
+ * Страница товаров вместе с общим числом найденных строк.
+ * estimated = true, если total ограничен сверху и не является точным
+ */
+public record ItemsWithTotalDto(List<Item> items, long total, boolean estimated) {
+}
@@ -5,6 +5,8 @@ public record PagingInfoDto(
         int totalPages,
         int pageSize,
         boolean hasPrevious,
-        boolean hasNext
+        boolean hasNext,
+        String prevCursor,
+        String nextCursor
 ) {
 }
@@ -0,0 +1,21 @@
+package org.pl.event;
+
+import org.pl.dao.Item;
+
+/**
+ * Событие изменения товара. item == null означает, что товар удалён
+ */
+public record ItemChangedEvent(Long itemId, Item item) {
+
+    public static ItemChangedEvent saved(Item item) {
+        return new ItemChangedEvent(item.getId(), item);
+    }
+
+    public static ItemChangedEvent deleted(Long itemId) {
+        return new ItemChangedEvent(itemId, null);
+    }
+
+    public boolean isDeleted() {
+        return item == null;
+    }
+}
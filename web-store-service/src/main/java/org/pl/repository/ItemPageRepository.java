@@ -0,0 +1,26 @@
+package org.pl.repository;
+
+import org.pl.dao.Item;
+import org.pl.dto.ItemsWithTotalDto;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Постраничная выборка товаров: сортировка и LIMIT/OFFSET выполняются в БД
+ */
+public interface ItemPageRepository {
+
+    Flux<Item> findPage(String title, ItemSort sort, int limit, long offset);
+
+    /**
+     * Keyset-выборка: строки строго после (или до, если backward) пары (key, id)
+     * в порядке сортировки. Для обратного хода строки возвращаются в обратном порядке.
+     */
+    Flux<Item> findPageAfter(String title, ItemSort sort, Object key, long id, boolean backward, int limit);
+
+    /**
+     * Страница и общее число строк за один запрос (COUNT(*) OVER ()).
+     * Если countCap задан, считается не больше countCap строк и total становится оценкой.
+     */
+    Mono<ItemsWithTotalDto> findPageWithTotal(String title, ItemSort sort, int limit, long offset, Integer countCap);
+}
@@ -0,0 +1,145 @@
+package org.pl.repository;
+
+import org.pl.dao.Item;
+import org.pl.dto.ItemsWithTotalDto;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+class ItemPageRepositoryImpl implements ItemPageRepository {
+
+    private static final String TITLE_FILTER = "LOWER(title) LIKE LOWER(CONCAT('%', :title, '%'))";
+
+    private final R2dbcEntityTemplate template;
+
+    ItemPageRepositoryImpl(R2dbcEntityTemplate template) {
+        this.template = template;
+    }
+
+    @Override
+    public Flux<Item> findPage(String title, ItemSort sort, int limit, long offset) {
+        boolean hasTitle = hasTitle(title);
+
+        String sql = "SELECT * FROM items"
+                + (hasTitle ? " WHERE " + TITLE_FILTER : "")
+                + " ORDER BY " + sort.getOrderBy()
+                + " LIMIT :limit OFFSET :offset";
+
+        DatabaseClient.GenericExecuteSpec spec = template.getDatabaseClient().sql(sql)
+                .bind("limit", limit)
+                .bind("offset", offset);
+        if (hasTitle) {
+            spec = spec.bind("title", title);
+        }
+
+        return readItems(spec);
+    }
+
+    @Override
+    public Flux<Item> findPageAfter(String title, ItemSort sort, Object key, long id, boolean backward, int limit) {
+        boolean hasTitle = hasTitle(title);
+        String keyColumn = sort.getKeyColumn();
+
+        // Направление сравнения совпадает с направлением обхода по индексу (ключ, id)
+        String op = sort.isDescending() != backward ? "<" : ">";
+        String keyset = keyColumn == null
+                ? "id " + op + " :id"
+                : "(" + keyColumn + " " + op + " :key OR (" + keyColumn + " = :key AND id " + op + " :id))";
+
+        String sql = "SELECT * FROM items WHERE "
+                + (hasTitle ? TITLE_FILTER + " AND " : "")
+                + keyset
+                + " ORDER BY " + sort.getOrderBy(backward)
+                + " LIMIT :limit";
+
+        DatabaseClient.GenericExecuteSpec spec = template.getDatabaseClient().sql(sql)
+                .bind("id", id)
+                .bind("limit", limit);
+        if (keyColumn != null) {
+            spec = spec.bind("key", key);
+        }
+        if (hasTitle) {
+            spec = spec.bind("title", title);
+        }
+
+        return readItems(spec);
+    }
+
+    @Override
+    public Mono<ItemsWithTotalDto> findPageWithTotal(String title, ItemSort sort, int limit, long offset, Integer countCap) {
+        boolean hasTitle = hasTitle(title);
+        String where = hasTitle ? " WHERE " + TITLE_FILTER : "";
+
+        // Оконная функция считается до LIMIT/OFFSET, поэтому в каждой строке - общее число совпадений
+        String total = countCap == null
+                ? "COUNT(*) OVER ()"
+                : "(SELECT COUNT(*) FROM (SELECT 1 FROM items" + where + " LIMIT :countCap) capped)";
+
+        String sql = "SELECT items.*, " + total + " AS total_count FROM items"
+                + where
+                + " ORDER BY " + sort.getOrderBy()
+                + " LIMIT :limit OFFSET :offset";
+
+        DatabaseClient.GenericExecuteSpec spec = template.getDatabaseClient().sql(sql)
+                .bind("limit", limit)
+                .bind("offset", offset);
+        if (hasTitle) {
+            spec = spec.bind("title", title);
+        }
+        if (countCap != null) {
+            spec = spec.bind("countCap", countCap);
+        }
+
+        return spec
+                .map((row, metadata) -> new ItemRow(
+                        template.getConverter().read(Item.class, row, metadata),
+                        row.get("total_count", Long.class)
+                ))
+                .all()
+                .collectList()
+                .flatMap(rows -> {
+                    List<Item> items = rows.stream().map(ItemRow::item).toList();
+                    if (!rows.isEmpty()) {
+                        long totalCount = rows.getFirst().totalCount();
+                        return Mono.just(new ItemsWithTotalDto(items, totalCount, countCap != null && totalCount >= countCap));
+                    }
+                    if (offset == 0) {
+                        return Mono.just(new ItemsWithTotalDto(items, 0, false));
+                    }
+                    // Страница за пределами выборки: строк нет, поэтому считаем отдельно
+                    return count(title, countCap)
+                            .map(totalCount -> new ItemsWithTotalDto(items, totalCount, countCap != null && totalCount >= countCap));
+                });
+    }
+
+    private Mono<Long> count(String title, Integer countCap) {
+        boolean hasTitle = hasTitle(title);
+        String sql = "SELECT COUNT(*) FROM (SELECT 1 FROM items"
+                + (hasTitle ? " WHERE " + TITLE_FILTER : "")
+                + (countCap != null ? " LIMIT :countCap" : "")
+                + ") matched";
+
+        DatabaseClient.GenericExecuteSpec spec = template.getDatabaseClient().sql(sql);
+        if (hasTitle) {
+            spec = spec.bind("title", title);
+        }
+        if (countCap != null) {
+            spec = spec.bind("countCap", countCap);
+        }
+        return spec.map((row, metadata) -> row.get(0, Long.class)).one();
+    }
+
+    private Flux<Item> readItems(DatabaseClient.GenericExecuteSpec spec) {
+        return spec.map((row, metadata) -> template.getConverter().read(Item.class, row, metadata)).all();
+    }
+
+    private static boolean hasTitle(String title) {
+        return title != null && !title.isEmpty();
+    }
+
+    private record ItemRow(Item item, long totalCount) {
+    }
+}
@@ -6,8 +6,16 @@ import org.springframework.data.repository.reactive.ReactiveCrudRepository;
 import org.springframework.stereotype.Repository;
 import reactor.core.publisher.Flux;
 
+import java.util.Collection;
+
 @Repository
-public interface ItemRepository extends ReactiveCrudRepository<Item, Long> {
+public interface ItemRepository extends ReactiveCrudRepository<Item, Long>, ItemPageRepository {
     @Query("SELECT * FROM items WHERE LOWER(title) LIKE LOWER(CONCAT('%', :title, '%'))")
     Flux<Item> findByTitleContainingIgnoreCase(String title);
+
+    @Query("SELECT id FROM items")
+    Flux<Long> findAllIds();
+
+    @Query("SELECT id FROM items WHERE id IN (:ids)")
+    Flux<Long> findExistingIds(Collection<Long> ids);
 }
@@ -0,0 +1,79 @@
+package org.pl.repository;
+
+import org.pl.dao.Item;
+
+import java.math.BigDecimal;
+import java.util.Locale;
+
+/**
+ * Порядок сортировки витрины и соответствующий ему SQL ORDER BY.
+ * id добавляется последним ключом, чтобы порядок страниц был стабильным
+ * и по паре (ключ, id) можно было продолжать выборку курсором.
+ */
+public enum ItemSort {
+    NO(null, false),
+    PRICE_ASC("price", false),
+    PRICE_DESC("price", true),
+    ALPHA_ASC("title_lower", false),
+    ALPHA_DESC("title_lower", true);
+
+    private final String keyColumn;
+    private final boolean descending;
+
+    ItemSort(String keyColumn, boolean descending) {
+        this.keyColumn = keyColumn;
+        this.descending = descending;
+    }
+
+    public String getKeyColumn() {
+        return keyColumn;
+    }
+
+    public boolean isDescending() {
+        return descending;
+    }
+
+    public String getOrderBy() {
+        return getOrderBy(false);
+    }
+
+    /**
+     * ORDER BY для прямого или обратного (reversed) обхода
+     */
+    public String getOrderBy(boolean reversed) {
+        String direction = descending != reversed ? " DESC" : " ASC";
+        return keyColumn == null
+                ? "id" + direction
+                : keyColumn + direction + ", id" + direction;
+    }
+
+    /**
+     * Значение ключа сортировки для товара (null для NO)
+     */
+    public Object keyOf(Item item) {
+        return switch (this) {
+            case PRICE_ASC, PRICE_DESC -> item.getPrice();
+            case ALPHA_ASC, ALPHA_DESC -> item.getTitle().toLowerCase(Locale.ROOT);
+            case NO -> null;
+        };
+    }
+
+    /**
+     * Восстанавливает ключ сортировки из строкового представления курсора
+     */
+    public Object parseKey(String key) {
+        return switch (this) {
+            case PRICE_ASC, PRICE_DESC -> new BigDecimal(key);
+            case ALPHA_ASC, ALPHA_DESC -> key;
+            case NO -> null;
+        };
+    }
+
+    public static ItemSort of(String sortBy) {
+        try {
+            return valueOf(sortBy);
+        } catch (IllegalArgumentException | NullPointerException e) {
+            throw new IllegalStateException("Unexpected value: " + sortBy);
+        }
+    }
+}
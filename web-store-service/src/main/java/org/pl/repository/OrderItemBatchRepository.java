@@ -0,0 +1,17 @@
+package org.pl.repository;
+
+import org.pl.dao.OrderItem;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * Пакетная запись строк заказа: многострочный INSERT вместо save на каждую строку
+ */
+public interface OrderItemBatchRepository {
+
+    /**
+     * Вставляет все строки; возвращает число вставленных строк
+     */
+    Mono<Long> insertAll(List<OrderItem> orderItems);
+}
@@ -0,0 +1,56 @@
+package org.pl.repository;
+
+import org.pl.dao.OrderItem;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+class OrderItemBatchRepositoryImpl implements OrderItemBatchRepository {
+
+    // Ограничение числа строк (и параметров) в одном INSERT
+    private static final int MAX_ROWS_PER_INSERT = 500;
+
+    private final R2dbcEntityTemplate template;
+
+    OrderItemBatchRepositoryImpl(R2dbcEntityTemplate template) {
+        this.template = template;
+    }
+
+    @Override
+    public Mono<Long> insertAll(List<OrderItem> orderItems) {
+        if (orderItems.isEmpty()) {
+            return Mono.just(0L);
+        }
+        return Flux.fromIterable(chunks(orderItems))
+                .concatMap(this::insertChunk)
+                .reduce(0L, Long::sum);
+    }
+
+    private Mono<Long> insertChunk(List<OrderItem> chunk) {
+        StringBuilder sql = new StringBuilder("INSERT INTO order_items (order_id, item_id, quantity) VALUES ");
+        for (int i = 0; i < chunk.size(); i++) {
+            sql.append(i == 0 ? "" : ", ").append("(:o").append(i).append(", :i").append(i).append(", :q").append(i).append(")");
+        }
+
+        DatabaseClient.GenericExecuteSpec spec = template.getDatabaseClient().sql(sql.toString());
+        for (int i = 0; i < chunk.size(); i++) {
+            OrderItem orderItem = chunk.get(i);
+            spec = spec.bind("o" + i, orderItem.getOrderId())
+                    .bind("i" + i, orderItem.getItemId())
+                    .bind("q" + i, orderItem.getQuantity());
+        }
+        return spec.fetch().rowsUpdated();
+    }
+
+    private static List<List<OrderItem>> chunks(List<OrderItem> orderItems) {
+        int count = (orderItems.size() + MAX_ROWS_PER_INSERT - 1) / MAX_ROWS_PER_INSERT;
+        return IntStream.range(0, count)
+                .mapToObj(i -> orderItems.subList(i * MAX_ROWS_PER_INSERT,
+                        Math.min(orderItems.size(), (i + 1) * MAX_ROWS_PER_INSERT)))
+                .toList();
+    }
+}
@@ -5,10 +5,13 @@ import org.springframework.data.r2dbc.repository.Query;
 import org.springframework.data.repository.reactive.ReactiveCrudRepository;
 import reactor.core.publisher.Flux;
 
-public interface OrderItemRepository extends ReactiveCrudRepository<OrderItem, Long> {
+public interface OrderItemRepository extends ReactiveCrudRepository<OrderItem, Long>, OrderItemBatchRepository {
     @Query("SELECT * FROM order_items")
     Flux<OrderItem> findAllWithAssociations();
 
     @Query("SELECT * FROM order_items WHERE order_id = :orderId")
     Flux<OrderItem> findByOrderIdWithAssociations(Long orderId);
+
+    @Query("SELECT item_id FROM order_items GROUP BY item_id ORDER BY SUM(quantity) DESC, item_id LIMIT :limit")
+    Flux<Long> findTopOrderedItemIds(int limit);
 }
@@ -6,6 +6,17 @@ import org.springframework.data.repository.reactive.ReactiveCrudRepository;
 import reactor.core.publisher.Mono;
 
 public interface OrderRepository extends ReactiveCrudRepository<Order, Long> {
-    @Query("SELECT order_number FROM orders ORDER BY order_date DESC LIMIT 1")
-    Mono<String> findLastOrderNumber();
+    Mono<Order> findByIdempotencyKey(String idempotencyKey);
+
+    /**
+     * Верхняя граница следующего блока номеров заказов (см. order_number_seq в schema.sql)
+     */
+    @Query("SELECT NEXT VALUE FOR order_number_seq")
+    Mono<Long> nextOrderNumberBlock();
+
+    /**
+     * Размер блока номеров - шаг (INCREMENT BY) последовательности order_number_seq
+     */
+    @Query("SELECT CAST(\"INCREMENT\" AS BIGINT) FROM INFORMATION_SCHEMA.SEQUENCES WHERE SEQUENCE_NAME = 'ORDER_NUMBER_SEQ'")
+    Mono<Long> findOrderNumberBlockSize();
 }
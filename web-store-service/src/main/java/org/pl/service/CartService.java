@@ -2,27 +2,36 @@ package org.pl.service;
 
 import org.pl.dao.Item;
 import org.pl.dao.Order;
+import org.pl.dto.Cart;
+import org.pl.dto.CartView;
+import org.pl.exception.BalanceServiceException;
 import org.pl.exception.EmptyCartException;
 import org.pl.exception.InsufficientFundsException;
 import org.pl.exception.OrderCreationException;
 import org.pl.exception.PaymentException;
 import org.pl.webstore.client.payment.api.DefaultApi;
+import org.pl.webstore.client.payment.model.BalanceDebitRequest;
 import org.pl.webstore.client.payment.model.BalanceResponse;
-import org.pl.webstore.client.payment.model.BalanceUpdateRequest;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
 import org.springframework.web.server.ServerWebExchange;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Supplier;
 
 @Service
 public class CartService {
     private static final String ITEM_NOT_FOUND_IN_CART = "Товар не найден в корзине";
     private static final String NEGATIVE_QUANTITY = "Количество товара не может быть отрицательным";
+    private static final String CART_VIEW_ATTRIBUTE = CartService.class.getName() + ".cartView";
 
     private final ItemService itemService;
     private final OrderService orderService;
@@ -48,7 +57,7 @@ public class CartService {
     public Mono<Order> createSaveOrders(ServerWebExchange exchange) {
         System.out.println("Начало создания заказа из всей корзины");
 
-        return sessionItemsCountsService.getCartItems(exchange)
+        return existingOrderOr(exchange, () -> sessionItemsCountsService.getCartItems(exchange)
                 .doOnNext(cartItems ->
                         System.out.println("Товаров в корзине: " + cartItems.size())
                 )
@@ -60,7 +69,7 @@ public class CartService {
 
                     System.out.println("Корзина не пуста, продолжаем обработку");
                     return processFullCartOrder(cartItems, exchange);
-                })
+                }))
                 .doOnSuccess(order ->
                         System.out.println("Заказ успешно создан, ID: " + order.getId() )
                 )
@@ -77,7 +86,7 @@ public class CartService {
     public Mono<Order> createSaveOrder(Long itemId, ServerWebExchange exchange) {
         System.out.println("=== Начало создания заказа для товара ID: " + itemId + " ===");
 
-        return sessionItemsCountsService.getCartItems(exchange)
+        return existingOrderOr(exchange, () -> sessionItemsCountsService.getCartItems(exchange)
                 .doOnNext(cartItems ->
                         System.out.println("Товаров в корзине: " + cartItems.size())
                 )
@@ -92,7 +101,7 @@ public class CartService {
                     }
 
                     return processSingleItemOrder(itemId, quantity, exchange);
-                })
+                }))
                 .doOnSuccess(order ->
                         System.out.println("Заказ для товара успешно создан, ID: " + order.getId())
                 )
@@ -105,61 +114,104 @@ public class CartService {
     public Mono<List<Item>> getItemsByItemsCounts(ServerWebExchange exchange) {
         System.out.println("Получение деталей товаров из корзины");
 
-        return sessionItemsCountsService.getCartItems(exchange)
-                .doOnNext(cartItems -> System.out.println("Найдено товаров в корзине: " + cartItems.size()))
-                .flatMap(this::fetchItemsByCart);
+        return getCartView(exchange).map(CartView::items);
     }
 
     @Transactional(readOnly = true)
     public Mono<BigDecimal> getTotalItemsSum(ServerWebExchange exchange) {
         System.out.println("Вычисление общей суммы корзины");
 
-        return sessionItemsCountsService.getCartItems(exchange)
-                .flatMap(this::calculateTotalSum)
+        return getCartView(exchange)
+                .map(CartView::total)
                 .doOnNext(total -> System.out.println("Итоговая сумма: " + total));
     }
 
-    // ============== ПРИВАТНЫЕ ВСПОМОГАТЕЛЬНЫЕ МЕТОДЫ ==============
-
     /**
-     * Запрашивает баланс пользователя у внешнего сервиса
+     * Товары корзины, стоимость позиций и итог одной пакетной загрузкой.
+     * Результат запоминается в атрибутах запроса вместе со снимком корзины: товары и сумма,
+     * запрошенные в одном запросе, считаются по одной загрузке, а после изменения корзины
+     * представление строится заново
      */
-    private Mono<BigDecimal> getUserBalance() {
-        return defaultApi.getUserBalance(1L)
-                .map(balanceResponse -> {
-                    System.out.println("Текущий баланс пользователя " + balanceResponse.getBalance());
-                    return balanceResponse.getBalance();
+    @Transactional(readOnly = true)
+    public Mono<CartView> getCartView(ServerWebExchange exchange) {
+        return sessionItemsCountsService.getCartItems(exchange)
+                .flatMap(cartItems -> {
+                    CachedCartView cached = exchange.getAttribute(CART_VIEW_ATTRIBUTE);
+                    if (cached != null && cached.cartItems().equals(cartItems)) {
+                        return cached.view();
+                    }
+                    Map<Long, Integer> snapshot = Cart.copyOf(cartItems);
+                    Mono<CartView> view = buildCartView(snapshot).cache();
+                    exchange.getAttributes().put(CART_VIEW_ATTRIBUTE, new CachedCartView(snapshot, view));
+                    return view;
                 });
     }
 
+    private record CachedCartView(Map<Long, Integer> cartItems, Mono<CartView> view) {
+    }
+
+    // ============== ПРИВАТНЫЕ ВСПОМОГАТЕЛЬНЫЕ МЕТОДЫ ==============
+
     /**
-     * Обновляет баланс пользователя после покупки
+     * Повтор оформления с ключом идемпотентности возвращает заказ, уже сохранённый с этим ключом
+     * (первая попытка закоммитилась, но результат не дошёл до клиента или до Redis).
+     * Если параллельная попытка успела сохранить заказ раньше, уникальный ключ не даст создать второй -
+     * тогда тоже возвращаем сохранённый
      */
-    private Mono<BalanceResponse> updateBalanceAfterPurchase(BigDecimal purchaseAmount) {
-        return getUserBalance()
-                .flatMap(currentBalance -> {
-                    BigDecimal newBalance = currentBalance.subtract(purchaseAmount);
-
-                    if (newBalance.compareTo(BigDecimal.ZERO) < 0) {
-                        return Mono.error(new RuntimeException(
-                                "Попытка установить отрицательный баланс: " + newBalance
-                        ));
-                    }
+    private Mono<Order> existingOrderOr(ServerWebExchange exchange, Supplier<Mono<Order>> checkout) {
+        String key = CheckoutIdempotencyService.keyOf(exchange);
+        if (key == null) {
+            return Mono.defer(checkout);
+        }
+        return orderService.findByIdempotencyKey(key)
+                .doOnNext(order -> System.out.println("Заказ с этим ключом уже оформлен, ID: " + order.getId()))
+                .switchIfEmpty(Mono.defer(checkout)
+                        .onErrorResume(CartService::isDuplicateKey, e -> orderService.findByIdempotencyKey(key)
+                                .switchIfEmpty(Mono.error(e))));
+    }
 
-                    BalanceUpdateRequest balanceUpdateRequest = new BalanceUpdateRequest();
-                    balanceUpdateRequest.setBalance(newBalance);
+    private static boolean isDuplicateKey(Throwable e) {
+        return e instanceof DataIntegrityViolationException
+                || e.getCause() instanceof DataIntegrityViolationException;
+    }
 
-                    System.out.println("Обновление баланса: " + currentBalance +
-                            " -> " + newBalance + " (списано: " + purchaseAmount + ")");
+    /**
+     * Списывает сумму покупки одним запросом к сервису платежей: проверка остатка и списание
+     * выполняются там атомарно, поэтому одновременные покупки не затирают списания друг друга.
+     * 409 означает нехватку средств (в ответе текущий баланс), прочие ошибки - сбой сервиса баланса.
+     * Ответ с replayed означает, что по этому ключу уже заплачено, а заказа с ключом в БД нет
+     * (предыдущая попытка откатилась после списания) - оплаченный заказ завершается без повторного списания
+     */
+    private Mono<BalanceResponse> debitBalance(BigDecimal purchaseAmount, String idempotencyKey) {
+        BalanceDebitRequest balanceDebitRequest = new BalanceDebitRequest();
+        balanceDebitRequest.setAmount(purchaseAmount);
+        // Сервис платежей по этому ключу не спишет деньги повторно при повторе запроса
+        balanceDebitRequest.setIdempotencyKey(idempotencyKey);
+
+        return defaultApi.debitUserBalance(1L, balanceDebitRequest)
+                .doOnSuccess(response -> System.out.println(Boolean.TRUE.equals(response.getReplayed())
+                        ? "Сумма " + purchaseAmount + " уже списана по этому ключу, завершаем заказ"
+                        : "Списано " + purchaseAmount + ", баланс: " + response.getBalance())
+                )
+                .onErrorMap(WebClientResponseException.Conflict.class, e ->
+                        new InsufficientFundsException(balanceFrom(e), purchaseAmount, e)
+                )
+                .onErrorMap(e -> !(e instanceof PaymentException), e ->
+                        new BalanceServiceException(e.getMessage(), e)
+                )
+                .doOnError(e -> System.err.println("Ошибка при списании с баланса: " + e.getMessage()));
+    }
 
-                    return defaultApi.updateUserBalance(1L, balanceUpdateRequest)
-                            .doOnSuccess(response ->
-                                    System.out.println("Баланс успешно обновлен: " + response.getBalance())
-                            )
-                            .doOnError(e ->
-                                    System.err.println("Ошибка при обновлении баланса: " + e.getMessage())
-                            );
-                });
+    /**
+     * Текущий баланс из ответа 409; null, если тело ответа не разобрать
+     */
+    private static BigDecimal balanceFrom(WebClientResponseException e) {
+        try {
+            BalanceResponse response = e.getResponseBodyAs(BalanceResponse.class);
+            return response != null ? response.getBalance() : null;
+        } catch (RuntimeException parseError) {
+            return null;
+        }
     }
 
     /**
@@ -191,27 +243,9 @@ public class CartService {
      * Обработка заказа для всей корзины
      */
     private Mono<Order> processFullCartOrder(Map<Long, Integer> cartItems, ServerWebExchange exchange) {
-        return Mono.zip(
-                        getUserBalance().cache(),
-                        calculateTotalSum(cartItems).cache()
-                )
-                .doOnNext(tuple -> {
-                    BigDecimal balance = tuple.getT1();
-                    BigDecimal total = tuple.getT2();
-                    System.out.println("Проверка баланса: " + balance + " >= " + total + " ?");
-                })
-                .flatMap(tuple -> {
-                    BigDecimal userBalance = tuple.getT1();
-                    BigDecimal totalAmount = tuple.getT2();
-
-                    // Проверка баланса с использованием кастомного исключения
-                    if (userBalance.compareTo(totalAmount) < 0) {
-                        return Mono.error(new InsufficientFundsException(userBalance, totalAmount));
-                    }
-
-                    System.out.println("Баланс достаточен, создаем заказ...");
-                    return orderService.createOrder(totalAmount);
-                })
+        return calculateTotalSum(cartItems)
+                .doOnNext(total -> System.out.println("Сумма заказа: " + total))
+                .flatMap(total -> orderService.createOrder(total, CheckoutIdempotencyService.keyOf(exchange)))
                 .flatMap(savedOrder -> {
                     System.out.println("Заказ создан в базе, ID: " + savedOrder.getId());
 
@@ -220,17 +254,8 @@ public class CartService {
                             .doOnSuccess(v ->
                                     System.out.println("Позиции заказа сохранены")
                             )
-                            .then(Mono.defer(() -> {
-                                // Обновляем баланс
-                                return updateBalanceAfterPurchase(savedOrder.getTotalAmount())
-                                        .doOnSuccess(response ->
-                                                System.out.println("Баланс обновлен: " + response.getBalance())
-                                        )
-                                        .doOnError(e -> {
-                                            System.err.println("Ошибка при обновлении баланса: " + e.getMessage());
-                                            // Логируем, но не прерываем процесс
-                                        });
-                            }))
+                            // Списываем деньги последним шагом: при нехватке средств транзакция откатывается
+                            .then(Mono.defer(() -> debitBalance(savedOrder.getTotalAmount(), CheckoutIdempotencyService.keyOf(exchange))))
                             .then(Mono.defer(() -> {
                                 // Очищаем корзину
                                 return sessionItemsCountsService.clearCartItems(exchange)
@@ -255,26 +280,8 @@ public class CartService {
      * Обработка заказа для одного товара
      */
     private Mono<Order> processSingleItemOrder(Long itemId, Integer quantity, ServerWebExchange exchange) {
-        return Mono.zip(
-                        getUserBalance().cache(),
-                        calculateItemTotal(itemId, quantity).cache()
-                )
-                .doOnNext(tuple -> {
-                    BigDecimal balance = tuple.getT1();
-                    BigDecimal itemTotal = tuple.getT2();
-                    System.out.println("Проверка баланса для товара " + itemId + ": " + balance + " >= " + itemTotal + " ?");
-                })
-                .flatMap(tuple -> {
-                    BigDecimal userBalance = tuple.getT1();
-                    BigDecimal itemTotal = tuple.getT2();
-
-                    if (userBalance.compareTo(itemTotal) < 0) {
-                        return Mono.error(new InsufficientFundsException(userBalance, itemTotal));
-                    }
-
-                    System.out.println("Баланс достаточен, создаем заказ для товара...");
-                    return orderService.createOrder(itemTotal);
-                })
+        return calculateItemTotal(itemId, quantity)
+                .flatMap(total -> orderService.createOrder(total, CheckoutIdempotencyService.keyOf(exchange)))
                 .flatMap(savedOrder -> {
                     System.out.println("Заказ создан, ID: " + savedOrder.getId());
 
@@ -285,13 +292,7 @@ public class CartService {
                             .doOnSuccess(v ->
                                     System.out.println("Позиция заказа сохранена")
                             )
-                            .then(Mono.defer(() -> {
-                                // Обновляем баланс
-                                return updateBalanceAfterPurchase(savedOrder.getTotalAmount())
-                                        .doOnSuccess(response ->
-                                                System.out.println("Баланс обновлен: " + response.getBalance())
-                                        );
-                            }))
+                            .then(Mono.defer(() -> debitBalance(savedOrder.getTotalAmount(), CheckoutIdempotencyService.keyOf(exchange))))
                             .then(Mono.defer(() -> {
                                 // Удаляем товар из корзины
                                 return sessionItemsCountsService.removeItemFromCart(exchange, itemId)
@@ -370,45 +371,55 @@ public class CartService {
     }
 
     /**
-     * Получает детальную информацию о товарах в корзине
-     * Использует flatMap для параллельной загрузки товаров
+     * Строит представление корзины: все товары загружаются одним пакетным запросом к кэшу (MGET),
+     * промахи - одним IN-запросом; стоимость позиций и итог считаются по этому же результату
      */
-    private Mono<List<Item>> fetchItemsByCart(Map<Long, Integer> cartItems) {
-        return Flux.fromIterable(cartItems.keySet())
-                .doOnNext(itemId -> System.out.println("Загрузка товара ID: " + itemId))
-                .flatMap(itemService::getItemById)  // параллельная загрузка
-                .collectList()
-                .doOnNext(items -> System.out.println("Загружено " + items.size() + " товаров"));
+    private Mono<CartView> buildCartView(Map<Long, Integer> cartItems) {
+        System.out.println("Загрузка товаров ID: " + cartItems.keySet());
+        return buildCartView(cartItems, itemService.getItemByIds(List.copyOf(cartItems.keySet())));
+    }
+
+    private Mono<CartView> buildCartView(Map<Long, Integer> cartItems, Flux<Item> loadedItems) {
+        return loadedItems
+                .collectMap(Item::getId)
+                .flatMap(itemsById -> {
+                    List<Item> items = new ArrayList<>(cartItems.size());
+                    Map<Long, BigDecimal> subtotals = new HashMap<>();
+                    BigDecimal sum = BigDecimal.ZERO;
+                    for (Map.Entry<Long, Integer> cartEntry : cartItems.entrySet()) {
+                        Item item = itemsById.get(cartEntry.getKey());
+                        if (item == null) {
+                            return Mono.error(new RuntimeException("Item not found"));
+                        }
+                        BigDecimal subtotal = calculateItemSubtotal(item, cartEntry.getValue());
+                        items.add(item);
+                        subtotals.put(item.getId(), subtotal);
+                        sum = sum.add(subtotal);
+                    }
+                    System.out.println("Загружено " + items.size() + " товаров");
+                    return Mono.just(new CartView(cartItems, items, subtotals, sum));
+                });
     }
 
     /**
-     * Вычисляет общую сумму корзины
-     * Использует reduce для агрегации
+     * Вычисляет сумму заказа по текущим ценам из БД: кэшированные цены годятся для страницы корзины,
+     * но списывать по ним нельзя
      */
     private Mono<BigDecimal> calculateTotalSum(Map<Long, Integer> cartItems) {
-        return Flux.fromIterable(cartItems.entrySet())
-                .flatMap(this::calculateItemSubtotal)
-                .reduce(BigDecimal.ZERO, (sum, subtotal) -> {
-                    System.out.println("Добавляем к сумме: " + subtotal);
-                    return sum.add(subtotal);
-                });
+        return buildCartView(cartItems, itemService.getCurrentItemsByIds(cartItems.keySet()))
+                .map(CartView::total);
     }
 
     /**
      * Вычисляет стоимость по одному элементу корзины
      */
-    private Mono<BigDecimal> calculateItemSubtotal(Map.Entry<Long, Integer> cartEntry) {
-        Long itemId = cartEntry.getKey();
-        Integer quantity = cartEntry.getValue();
-
-        return itemService.getPriceById(itemId)
-                .map(price -> {
-                    BigDecimal subtotal = price.multiply(BigDecimal.valueOf(quantity));
-                    System.out.printf(
-                            "Товар %s: %d x %s = %s%n",
-                            itemId, quantity, price, subtotal
-                    );
-                    return subtotal;
-                });
+    private BigDecimal calculateItemSubtotal(Item item, Integer quantity) {
+        BigDecimal price = item.getPrice();
+        BigDecimal subtotal = price.multiply(BigDecimal.valueOf(quantity));
+        System.out.printf(
+                "Товар %s: %d x %s = %s%n",
+                item.getId(), quantity, price, subtotal
+        );
+        return subtotal;
     }
 }
\ No newline at end of file
@@ -0,0 +1,30 @@
+package org.pl.service;
+
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+
+/**
+ * Хранилище корзины текущего пользователя (id товара -> количество).
+ * Реализация выбирается свойством store.cart.backend: session - карта в WebSession, redis - hash в Redis.
+ */
+public interface CartStore {
+
+    Mono<Map<Long, Integer>> getCartItems(ServerWebExchange exchange);
+
+    Mono<Void> clear(ServerWebExchange exchange);
+
+    Mono<Void> remove(ServerWebExchange exchange, Long itemId);
+
+    /**
+     * delta: +1/-1 изменяет количество (не ниже нуля), 0 - удаляет позицию
+     */
+    Mono<Void> change(ServerWebExchange exchange, Long itemId, int delta);
+
+    /**
+     * Общее количество единиц товара в уже загруженной корзине items
+     * (хранилище может заодно убрать из неё пустые позиции)
+     */
+    Mono<Integer> countItems(ServerWebExchange exchange, Map<Long, Integer> items);
+}
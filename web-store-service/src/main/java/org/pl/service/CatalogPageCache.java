@@ -0,0 +1,99 @@
+package org.pl.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.pl.event.ItemChangedEvent;
+import org.pl.repository.ItemSort;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Кэш страниц каталога: для (сортировка, поисковая строка, страница, размер) хранит только id товаров
+ * и общее количество, сами товары подтягиваются через кэш товаров.
+ * Версия каталога входит в ключ и увеличивается при любом изменении товара (локально или на другом узле),
+ * поэтому старые страницы просто перестают находиться и вытесняются.
+ */
+@Component
+public class CatalogPageCache {
+
+    public record PageKey(long version, ItemSort sort, String search, int page, int size) {
+    }
+
+    public record PageIds(List<Long> ids, long total, boolean estimated) {
+    }
+
+    private final AtomicLong version = new AtomicLong();
+    private final Cache<PageKey, PageIds> pages;
+    private final Counter hits;
+    private final Counter misses;
+
+    public CatalogPageCache(
+            MeterRegistry meterRegistry,
+            @Value("${store.cache.pages.max-size:1000}") long maxSize,
+            @Value("${store.cache.pages.ttl:60s}") Duration ttl
+    ) {
+        this.pages = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .build();
+        this.hits = pageCounter(meterRegistry, "hit");
+        this.misses = pageCounter(meterRegistry, "miss");
+    }
+
+    /**
+     * Поисковая строка в каноническом виде: без пробелов по краям и в нижнем регистре; пустая - null
+     */
+    public static String normalize(String search) {
+        if (search == null) {
+            return null;
+        }
+        String trimmed = search.trim();
+        return trimmed.isEmpty() ? null : trimmed.toLowerCase(Locale.ROOT);
+    }
+
+    public PageKey key(ItemSort sort, String search, int page, int size) {
+        return new PageKey(version.get(), sort, normalize(search), page, size);
+    }
+
+    public PageIds get(PageKey key) {
+        PageIds cached = pages.getIfPresent(key);
+        (cached != null ? hits : misses).increment();
+        return cached;
+    }
+
+    public void put(PageKey key, PageIds ids) {
+        // Страница, посчитанная до изменения каталога, под новой версией не сохраняется
+        if (key.version() == version.get()) {
+            pages.put(key, ids);
+        }
+    }
+
+    public long version() {
+        return version.get();
+    }
+
+    public void bumpVersion() {
+        version.incrementAndGet();
+        pages.invalidateAll();
+    }
+
+    @EventListener
+    public void onItemChanged(ItemChangedEvent event) {
+        bumpVersion();
+    }
+
+    private static Counter pageCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("store.cache.pages")
+                .description("Обращения к кэшу страниц каталога")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+}
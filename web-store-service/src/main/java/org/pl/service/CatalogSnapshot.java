@@ -0,0 +1,105 @@
+package org.pl.service;
+
+import org.pl.config.CompactRedisSerializer;
+import org.pl.dao.Item;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Снимок каталога в локальном файле для быстрого холодного старта.
+ * Формат: магическое число, версия, количество товаров, затем товары в компактном бинарном формате
+ * (длина + байты CompactRedisSerializer). Файл читается через отображение в память (mmap).
+ * Пустой store.warmup.snapshot.path отключает снимок.
+ */
+@Component
+public class CatalogSnapshot {
+
+    private static final int MAGIC = 0x57534331; // "WSC1"
+    private static final byte VERSION = 1;
+
+    private final Path path;
+    private final CompactRedisSerializer serializer = new CompactRedisSerializer();
+
+    public CatalogSnapshot(@Value("${store.warmup.snapshot.path:}") String path) {
+        this.path = path == null || path.isBlank() ? null : Path.of(path);
+    }
+
+    public boolean isEnabled() {
+        return path != null;
+    }
+
+    /**
+     * Товары из снимка; пустой список, если снимка нет или он повреждён
+     */
+    public List<Item> read() {
+        if (path == null || !Files.isRegularFile(path)) {
+            return List.of();
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.remaining() < 9 || buffer.getInt() != MAGIC || buffer.get() != VERSION) {
+                System.out.println("CatalogSnapshot: неизвестный формат файла " + path);
+                return List.of();
+            }
+            int count = buffer.getInt();
+            List<Item> items = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                byte[] bytes = new byte[buffer.getInt()];
+                buffer.get(bytes);
+                if (serializer.deserialize(bytes) instanceof Item item) {
+                    items.add(item);
+                }
+            }
+            return items;
+        } catch (IOException | RuntimeException e) {
+            System.out.println("CatalogSnapshot read error: " + e.getMessage());
+            return List.of();
+        }
+    }
+
+    /**
+     * Записывает снимок во временный файл и атомарно подменяет им старый
+     */
+    public void write(Collection<Item> items) {
+        if (path == null) {
+            return;
+        }
+        List<byte[]> encoded = items.stream().map(serializer::serialize).toList();
+        int size = 9 + encoded.stream().mapToInt(bytes -> 4 + bytes.length).sum();
+
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.putInt(MAGIC).put(VERSION).putInt(encoded.size());
+        encoded.forEach(bytes -> buffer.putInt(bytes.length).put(bytes));
+        buffer.flip();
+
+        try {
+            Path parent = path.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+            try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            System.out.println("CatalogSnapshot записан, товаров: " + encoded.size());
+        } catch (IOException e) {
+            System.out.println("CatalogSnapshot write error: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package org.pl.service;
+
+import org.pl.dao.Item;
+import org.pl.repository.ItemRepository;
+import org.pl.repository.ItemSort;
+import org.pl.repository.OrderItemRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Подготовка к приёму трафика при старте. ApplicationRunner выполняется до того, как приложение
+ * объявляет готовность (readiness ACCEPTING_TRAFFIC, /actuator/health/readiness), поэтому к этому
+ * моменту поисковый индекс и фильтр id уже построены, а кэши прогреты.
+ * Прогреваются top-N самых заказываемых товаров и первые страницы каталога для каждой сортировки.
+ * Если задан снимок каталога, индекс и фильтр поднимаются из него мгновенно, а из БД
+ * пересобираются в фоне.
+ */
+@Component
+public class CatalogWarmup implements ApplicationRunner {
+
+    private final ItemRepository itemRepository;
+    private final OrderItemRepository orderItemRepository;
+    private final ItemCacheService itemCacheService;
+    private final ItemSearchIndex itemSearchIndex;
+    private final ItemIdBloomFilter itemIdBloomFilter;
+    private final CatalogSnapshot catalogSnapshot;
+    private final boolean enabled;
+    private final int topItems;
+    private final int pageSize;
+    private final Duration timeout;
+
+    public CatalogWarmup(
+            ItemRepository itemRepository,
+            OrderItemRepository orderItemRepository,
+            ItemCacheService itemCacheService,
+            ItemSearchIndex itemSearchIndex,
+            ItemIdBloomFilter itemIdBloomFilter,
+            CatalogSnapshot catalogSnapshot,
+            @Value("${store.warmup.enabled:true}") boolean enabled,
+            @Value("${store.warmup.top-items:100}") int topItems,
+            @Value("${store.warmup.page-size:5}") int pageSize,
+            @Value("${store.warmup.timeout:30s}") Duration timeout
+    ) {
+        this.itemRepository = itemRepository;
+        this.orderItemRepository = orderItemRepository;
+        this.itemCacheService = itemCacheService;
+        this.itemSearchIndex = itemSearchIndex;
+        this.itemIdBloomFilter = itemIdBloomFilter;
+        this.catalogSnapshot = catalogSnapshot;
+        this.enabled = enabled;
+        this.topItems = topItems;
+        this.pageSize = pageSize;
+        this.timeout = timeout;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        boolean fromSnapshot = loadSnapshot();
+        buildIndexes(fromSnapshot);
+        if (!enabled) {
+            return;
+        }
+        long start = System.nanoTime();
+
+        try {
+            Integer warmed = warmup().block(timeout);
+            System.out.println("Прогрев кэша завершён, товаров: " + warmed
+                    + ", " + Duration.ofNanos(System.nanoTime() - start).toMillis() + " мс");
+        } catch (RuntimeException e) {
+            // Прогрев - оптимизация: его ошибка не должна мешать старту
+            System.out.println("Прогрев кэша прерван: " + e.getMessage());
+        }
+
+        if (catalogSnapshot.isEnabled()) {
+            itemRepository.findAll()
+                    .collectList()
+                    .subscribe(catalogSnapshot::write,
+                            error -> System.out.println("CatalogSnapshot error: " + error.getMessage()));
+        }
+    }
+
+    /**
+     * Id популярных товаров и товаров первых страниц каждой сортировки, загруженные в кэши одной пачкой
+     */
+    public Mono<Integer> warmup() {
+        Flux<Long> topOrdered = orderItemRepository.findTopOrderedItemIds(topItems);
+        Flux<Long> firstPages = Flux.fromIterable(Arrays.asList(ItemSort.values()))
+                .concatMap(sort -> itemRepository.findPage(null, sort, pageSize, 0))
+                .map(Item::getId);
+
+        return Flux.concat(topOrdered, firstPages)
+                .collect(LinkedHashSet<Long>::new, Set::add)
+                .flatMap(ids -> itemCacheService.getItems(ids).count())
+                .map(Long::intValue);
+    }
+
+    /**
+     * Поисковый индекс и фильтр id из БД. Без снимка строятся синхронно: до готовности поиск
+     * шёл бы мимо индекса, а фильтр пропускал бы любые id. Ошибка построения не мешает старту -
+     * до следующей пересборки работают обходные пути через БД
+     */
+    private void buildIndexes(boolean fromSnapshot) {
+        Mono<Void> builds = Mono.when(
+                itemSearchIndex.rebuild()
+                        .doOnNext(count -> System.out.println("ItemSearchIndex построен, товаров: " + count)),
+                itemIdBloomFilter.rebuild()
+                        .doOnNext(count -> System.out.println("ItemIdBloomFilter построен, id: " + count))
+        );
+        if (fromSnapshot) {
+            builds.subscribe(null, error -> System.out.println("Index rebuild error: " + error.getMessage()));
+            return;
+        }
+        try {
+            builds.block(timeout);
+        } catch (RuntimeException e) {
+            System.out.println("Index build error: " + e.getMessage());
+        }
+    }
+
+    /**
+     * true, если индекс и фильтр подняты из снимка каталога
+     */
+    private boolean loadSnapshot() {
+        if (!catalogSnapshot.isEnabled()) {
+            return false;
+        }
+        List<Item> items = catalogSnapshot.read();
+        if (items.isEmpty()) {
+            return false;
+        }
+        itemSearchIndex.reindex(items);
+        itemIdBloomFilter.build(items.stream().map(Item::getId).toList());
+        System.out.println("Каталог поднят из снимка, товаров: " + items.size());
+        return true;
+    }
+}
@@ -0,0 +1,200 @@
+package org.pl.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.pl.dao.Order;
+import org.pl.exception.OrderCreationException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Идемпотентное оформление заказа по ключу клиента (заголовок Idempotency-Key или скрытое поле формы).
+ * Первый запрос занимает ключ в Redis (SET NX с коротким TTL) и оформляет заказ; результат сохраняется
+ * под тем же ключом с длинным TTL. Повтор с тем же ключом получает исходный заказ без обращения к БД
+ * и сервису платежей, а параллельный повтор ждёт завершения первого. При ошибке оформления ключ
+ * освобождается, чтобы пользователь мог повторить покупку.
+ * Без ключа или при недоступности Redis заказ оформляется как обычно. Если при этом ключ уже
+ * использовался (Redis недоступен, истёк TTL блокировки, результат не записан), CartService находит
+ * заказ по ключу в БД, а сервис платежей не списывает деньги второй раз.
+ */
+@Service
+public class CheckoutIdempotencyService {
+
+    public static final String HEADER = "Idempotency-Key";
+    public static final String FORM_FIELD = "idempotencyKey";
+
+    private static final String KEY_ATTRIBUTE = CheckoutIdempotencyService.class.getName() + ".key";
+    private static final String KEY_PREFIX = "checkout:";
+    private static final String PENDING = "pending";
+    private static final String DONE_PREFIX = "done|";
+    private static final int MAX_KEY_LENGTH = 128;
+    private static final Duration POLL_INTERVAL = Duration.ofMillis(100);
+
+    private enum State { ACQUIRED, PENDING, UNAVAILABLE }
+
+    private final ReactiveStringRedisTemplate redisTemplate;
+    private final boolean enabled;
+    private final Duration resultTtl;
+    private final Duration lockTtl;
+    private final Duration waitTimeout;
+
+    private final Counter executed;
+    private final Counter replayed;
+    private final Counter bypassed;
+
+    public CheckoutIdempotencyService(
+            ReactiveStringRedisTemplate redisTemplate,
+            MeterRegistry meterRegistry,
+            @Value("${store.checkout.idempotency.enabled:true}") boolean enabled,
+            @Value("${store.checkout.idempotency.ttl:24h}") Duration resultTtl,
+            @Value("${store.checkout.idempotency.lock-ttl:30s}") Duration lockTtl,
+            @Value("${store.checkout.idempotency.wait:5s}") Duration waitTimeout
+    ) {
+        this.redisTemplate = redisTemplate;
+        this.enabled = enabled;
+        this.resultTtl = resultTtl;
+        this.lockTtl = lockTtl;
+        this.waitTimeout = waitTimeout;
+        this.executed = checkoutCounter(meterRegistry, "executed");
+        this.replayed = checkoutCounter(meterRegistry, "replayed");
+        this.bypassed = checkoutCounter(meterRegistry, "bypassed");
+    }
+
+    /**
+     * Новый токен для скрытого поля формы оформления заказа
+     */
+    public static String newToken() {
+        return UUID.randomUUID().toString();
+    }
+
+    /**
+     * Ключ идемпотентности текущего запроса (с привязкой к сессии) или null;
+     * передаётся сервису платежей, чтобы повтор не списал деньги дважды
+     */
+    public static String keyOf(ServerWebExchange exchange) {
+        return exchange.getAttribute(KEY_ATTRIBUTE);
+    }
+
+    public Mono<Order> execute(ServerWebExchange exchange, Supplier<Mono<Order>> checkout) {
+        if (!enabled) {
+            return Mono.defer(checkout);
+        }
+        return resolveKey(exchange)
+                .flatMap(key -> exchange.getSession().map(session -> session.getId() + ":" + key))
+                .map(Optional::of)
+                .defaultIfEmpty(Optional.empty())
+                .flatMap(key -> {
+                    if (key.isEmpty()) {
+                        bypassed.increment();
+                        return Mono.defer(checkout);
+                    }
+                    exchange.getAttributes().put(KEY_ATTRIBUTE, key.get());
+                    return execute(KEY_PREFIX + key.get(), checkout);
+                });
+    }
+
+    private Mono<Order> execute(String redisKey, Supplier<Mono<Order>> checkout) {
+        return redisTemplate.opsForValue().setIfAbsent(redisKey, PENDING, lockTtl)
+                .flatMap(acquired -> acquired
+                        ? Mono.just(State.ACQUIRED)
+                        : redisTemplate.opsForValue().get(redisKey).map(value -> State.PENDING))
+                .defaultIfEmpty(State.PENDING)
+                .onErrorResume(error -> {
+                    System.out.println("Checkout idempotency unavailable: " + error.getMessage());
+                    return Mono.just(State.UNAVAILABLE);
+                })
+                .flatMap(state -> switch (state) {
+                    case ACQUIRED -> {
+                        executed.increment();
+                        yield Mono.defer(checkout)
+                                .flatMap(order -> complete(redisKey, order).thenReturn(order))
+                                .onErrorResume(error -> release(redisKey).then(Mono.error(error)));
+                    }
+                    case PENDING -> awaitResult(redisKey);
+                    case UNAVAILABLE -> {
+                        bypassed.increment();
+                        yield Mono.defer(checkout);
+                    }
+                });
+    }
+
+    /**
+     * Ждёт результата запроса, занявшего ключ раньше: готовый заказ, освобождённый ключ (ошибка) или таймаут
+     */
+    private Mono<Order> awaitResult(String redisKey) {
+        return Flux.concat(Mono.just(0L), Flux.interval(POLL_INTERVAL))
+                .concatMap(tick -> redisTemplate.opsForValue().get(redisKey).defaultIfEmpty(""))
+                .filter(value -> !PENDING.equals(value))
+                .next()
+                .timeout(waitTimeout)
+                .flatMap(value -> {
+                    if (!value.startsWith(DONE_PREFIX)) {
+                        return Mono.error(new OrderCreationException("предыдущая попытка оформления не удалась, повторите покупку"));
+                    }
+                    replayed.increment();
+                    System.out.println("Повторный запрос оформления, возвращаем сохранённый заказ");
+                    return Mono.just(decode(value));
+                })
+                .onErrorMap(TimeoutException.class, e -> new OrderCreationException("заказ уже оформляется", e));
+    }
+
+    private Mono<Boolean> complete(String redisKey, Order order) {
+        return redisTemplate.opsForValue().set(redisKey, encode(order), resultTtl)
+                .onErrorResume(error -> {
+                    System.out.println("Checkout result not stored: " + error.getMessage());
+                    return Mono.just(false);
+                });
+    }
+
+    private Mono<Boolean> release(String redisKey) {
+        return redisTemplate.delete(redisKey)
+                .map(deleted -> deleted > 0)
+                .onErrorResume(error -> Mono.just(false));
+    }
+
+    private static Mono<String> resolveKey(ServerWebExchange exchange) {
+        String header = exchange.getRequest().getHeaders().getFirst(HEADER);
+        Mono<String> key = header != null
+                ? Mono.just(header)
+                : exchange.getFormData().mapNotNull(form -> form.getFirst(FORM_FIELD));
+        return key.map(String::trim)
+                .filter(value -> !value.isEmpty() && value.length() <= MAX_KEY_LENGTH);
+    }
+
+    static String encode(Order order) {
+        return DONE_PREFIX + order.getId()
+                + "|" + order.getOrderNumber()
+                + "|" + order.getTotalAmount()
+                + "|" + order.getOrderDate();
+    }
+
+    static Order decode(String value) {
+        String[] parts = value.substring(DONE_PREFIX.length()).split("\\|", 4);
+        Order order = new Order(
+                parts[1],
+                new BigDecimal(parts[2]),
+                "null".equals(parts[3]) ? null : LocalDateTime.parse(parts[3])
+        );
+        order.setId("null".equals(parts[0]) ? null : Long.valueOf(parts[0]));
+        return order;
+    }
+
+    private static Counter checkoutCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("store.checkout.idempotency")
+                .description("Оформления заказа: выполненные, повторы с сохранённым результатом и без ключа")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,287 @@
+package org.pl.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.pl.config.RedisCacheProperties;
+import org.pl.dao.Item;
+import org.pl.event.ItemChangedEvent;
+import org.pl.repository.ItemRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Read-through кэш товаров: единая точка поиска, заполнения и проверки существования товара.
+ * Уровни: локальный L1 (ограничен по размеру и времени жизни), затем Redis (L2), затем БД.
+ * При попадании в любой из уровней кэша обращения к БД нет.
+ * Одновременные промахи по одному id объединяются в одну загрузку (single-flight).
+ * Ключ Redis, прошедший заданную долю TTL, перечитывается в фоне (refresh-ahead), а запрос получает текущее значение.
+ * Id, которых точно нет (фильтр Блума), отсекаются до кэшей; подтверждённое отсутствие кэшируется в Redis.
+ * Счётчики попаданий и промахов каждого уровня и загрузок из БД публикуются в Micrometer (/actuator/metrics).
+ */
+@Service
+public class ItemCacheService {
+
+    private static final String REQUESTS_METRIC = "store.cache.item.requests";
+
+    private final RedisCacheItemService redisCacheItemService;
+    private final ItemRepository itemRepository;
+    private final int batchSize;
+    private final Cache<Long, Item> localCache;
+    private final ConcurrentMap<Long, Mono<Item>> inFlight = new ConcurrentHashMap<>();
+    private final Set<Long> refreshing = ConcurrentHashMap.newKeySet();
+    private final RedisCacheProperties cacheProperties;
+    private final ItemIdBloomFilter itemIdBloomFilter;
+
+    private final Counter localHits;
+    private final Counter localMisses;
+    private final Counter redisHits;
+    private final Counter redisMisses;
+    private final Counter coalesced;
+    private final Counter syncLoads;
+    private final Counter refreshLoads;
+    private final Counter negativeHits;
+    private final Counter negativeStored;
+
+    public ItemCacheService(
+            RedisCacheItemService redisCacheItemService,
+            ItemRepository itemRepository,
+            RedisCacheProperties cacheProperties,
+            ItemIdBloomFilter itemIdBloomFilter,
+            MeterRegistry meterRegistry,
+            @Value("${store.items.batch-size:100}") int batchSize,
+            @Value("${store.cache.local.max-size:10000}") long localMaxSize,
+            @Value("${store.cache.local.ttl:5s}") Duration localTtl
+    ) {
+        this.redisCacheItemService = redisCacheItemService;
+        this.itemRepository = itemRepository;
+        this.cacheProperties = cacheProperties;
+        this.itemIdBloomFilter = itemIdBloomFilter;
+        this.batchSize = batchSize;
+        this.localCache = Caffeine.newBuilder()
+                .maximumSize(localMaxSize)
+                .expireAfterWrite(localTtl)
+                .build();
+
+        this.localHits = requestCounter(meterRegistry, "l1", "hit");
+        this.localMisses = requestCounter(meterRegistry, "l1", "miss");
+        this.redisHits = requestCounter(meterRegistry, "l2", "hit");
+        this.redisMisses = requestCounter(meterRegistry, "l2", "miss");
+        this.coalesced = Counter.builder("store.cache.item.coalesced")
+                .description("Запросы, присоединившиеся к уже идущей загрузке товара")
+                .register(meterRegistry);
+        this.syncLoads = loadCounter(meterRegistry, "sync-miss");
+        this.refreshLoads = loadCounter(meterRegistry, "refresh-ahead");
+        this.negativeHits = negativeCounter(meterRegistry, "hit");
+        this.negativeStored = negativeCounter(meterRegistry, "stored");
+    }
+
+    /**
+     * Товар из L1, затем из Redis, затем из БД с заполнением обоих уровней.
+     * Пустой результат - товара нет.
+     */
+    public Mono<Item> getItem(Long id) {
+        if (!itemIdBloomFilter.mightContain(id)) {
+            return Mono.empty();
+        }
+        Item local = localCache.getIfPresent(id);
+        if (local != null) {
+            localHits.increment();
+            return Mono.just(local);
+        }
+        localMisses.increment();
+
+        Mono<Item> pending = inFlight.get(id);
+        if (pending != null) {
+            coalesced.increment();
+            return pending;
+        }
+        return inFlight.computeIfAbsent(id, key -> loadThroughRedis(key)
+                .doFinally(signal -> inFlight.remove(key))
+                .cache());
+    }
+
+    /**
+     * Товар или ошибка, если такого товара нет
+     */
+    public Mono<Item> getRequiredItem(Long id) {
+        return getItem(id).switchIfEmpty(Mono.error(new RuntimeException("Item not found")));
+    }
+
+    public Mono<Boolean> exists(Long id) {
+        return getItem(id).hasElement();
+    }
+
+    /**
+     * Пакетная загрузка: L1, затем один MGET в Redis,
+     * промахи - запросами WHERE id IN (...) пачками по batchSize с заполнением кэшей
+     */
+    public Flux<Item> getItems(Collection<Long> ids) {
+        List<Long> distinctIds = itemIdBloomFilter.filter(
+                ids.stream().filter(Objects::nonNull).distinct().toList()
+        );
+        if (distinctIds.isEmpty()) {
+            return Flux.empty();
+        }
+
+        List<Item> local = new ArrayList<>();
+        List<Long> localMissIds = new ArrayList<>();
+        for (Long id : distinctIds) {
+            Item item = localCache.getIfPresent(id);
+            if (item != null) {
+                local.add(item);
+            } else {
+                localMissIds.add(id);
+            }
+        }
+        localHits.increment(local.size());
+        localMisses.increment(localMissIds.size());
+        if (localMissIds.isEmpty()) {
+            return Flux.fromIterable(local);
+        }
+
+        Flux<Item> remote = redisCacheItemService.getItemsFromCache(localMissIds)
+                .flatMapMany(cached -> {
+                    redisHits.increment(cached.size());
+                    cached.forEach(localCache::put);
+
+                    List<Long> misses = localMissIds.stream()
+                            .filter(id -> !cached.containsKey(id))
+                            .toList();
+                    redisMisses.increment(misses.size());
+                    syncLoads.increment(misses.size());
+
+                    Flux<Item> loaded = Flux.fromIterable(partition(misses, batchSize))
+                            .concatMap(itemRepository::findAllById)
+                            .collectList()
+                            .flatMapMany(items -> fill(items).thenMany(Flux.fromIterable(items)));
+
+                    return Flux.concat(Flux.fromIterable(cached.values()), loaded);
+                });
+
+        return Flux.concat(Flux.fromIterable(local), remote);
+    }
+
+    public void evict(Long id) {
+        localCache.invalidate(id);
+    }
+
+    /**
+     * Изменённый или удалённый товар убирается из L1, следующее чтение пойдёт за свежей версией
+     */
+    @EventListener
+    public void onItemChanged(ItemChangedEvent event) {
+        evict(event.itemId());
+    }
+
+    private Mono<Item> loadThroughRedis(Long id) {
+        return redisCacheItemService.getCachedItem(id)
+                .onErrorResume(error -> Mono.empty())
+                .doOnNext(cached -> {
+                    redisHits.increment();
+                    if (cacheProperties.shouldRefresh(RedisCacheProperties.ITEM, cached.remainingTtl())) {
+                        refreshAhead(id);
+                    }
+                })
+                .map(RedisCacheItemService.CachedItem::item)
+                .switchIfEmpty(Mono.defer(() -> {
+                    redisMisses.increment();
+                    return redisCacheItemService.isMarkedMissing(id)
+                            .onErrorReturn(false)
+                            .flatMap(missing -> {
+                                if (missing) {
+                                    negativeHits.increment();
+                                    return Mono.empty();
+                                }
+                                return loadFromDatabase(id);
+                            });
+                }))
+                .doOnNext(item -> localCache.put(id, item));
+    }
+
+    /**
+     * Синхронная загрузка из БД: найденный товар кладётся в Redis, отсутствующий запоминается в негативном кэше
+     */
+    private Mono<Item> loadFromDatabase(Long id) {
+        syncLoads.increment();
+        return itemRepository.findById(id)
+                .flatMap(item -> redisCacheItemService.saveItemToCache(item)
+                        .onErrorResume(error -> Mono.just(false))
+                        .thenReturn(item))
+                .switchIfEmpty(Mono.defer(() -> {
+                    negativeStored.increment();
+                    return redisCacheItemService.markMissing(id)
+                            .onErrorResume(error -> Mono.just(false))
+                            .then(Mono.empty());
+                }));
+    }
+
+    /**
+     * Ключ скоро истечёт: перечитываем товар в фоне, пока запросы получают текущее значение.
+     * Для одного id одновременно идёт не больше одного обновления.
+     */
+    private void refreshAhead(Long id) {
+        if (!refreshing.add(id)) {
+            return;
+        }
+        refreshLoads.increment();
+        itemRepository.findById(id)
+                .flatMap(item -> redisCacheItemService.saveItemToCache(item)
+                        .doOnNext(saved -> localCache.put(id, item)))
+                .doFinally(signal -> refreshing.remove(id))
+                .subscribe(
+                        saved -> System.out.println("refreshAhead item id = " + id),
+                        error -> System.out.println("refreshAhead error: " + error.getMessage())
+                );
+    }
+
+    private Mono<Void> fill(List<Item> items) {
+        items.forEach(item -> localCache.put(item.getId(), item));
+        return redisCacheItemService.saveItemsToCache(items)
+                .onErrorResume(error -> Mono.just(0L))
+                .then();
+    }
+
+    private static List<List<Long>> partition(List<Long> ids, int size) {
+        List<List<Long>> chunks = new ArrayList<>();
+        for (int i = 0; i < ids.size(); i += size) {
+            chunks.add(ids.subList(i, Math.min(ids.size(), i + size)));
+        }
+        return chunks;
+    }
+
+    private static Counter negativeCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("store.cache.item.negative")
+                .description("Негативный кэш отсутствующих товаров: попадания и новые записи")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    private static Counter loadCounter(MeterRegistry meterRegistry, String mode) {
+        return Counter.builder("store.cache.item.loads")
+                .description("Загрузки товара из БД: синхронные промахи и упреждающие обновления")
+                .tag("mode", mode)
+                .register(meterRegistry);
+    }
+
+    private static Counter requestCounter(MeterRegistry meterRegistry, String level, String result) {
+        return Counter.builder(REQUESTS_METRIC)
+                .description("Обращения к кэшу товаров по уровням")
+                .tag("level", level)
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+}
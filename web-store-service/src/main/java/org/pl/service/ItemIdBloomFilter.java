@@ -0,0 +1,225 @@
+package org.pl.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.pl.event.ItemChangedEvent;
+import org.pl.repository.ItemRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Фильтр Блума по существующим id товаров.
+ * Отвечает "точно нет" или "возможно есть": несуществующий id отсекается до обращения к кэшам и БД.
+ * Строится при старте одним запросом SELECT id, пополняется при сохранении товаров (в т.ч. на других узлах).
+ * id, добавленные пока идёт пересборка, запоминаются и переносятся в новый массив, иначе товар,
+ * сохранённый между чтением id из БД и заменой массива, отсекался бы как несуществующий.
+ * Удаления не учитываются - удалённый id остаётся "возможно есть" и отсекается негативным кэшем.
+ * Пока фильтр не построен, пропускает все id.
+ */
+@Component
+public class ItemIdBloomFilter {
+
+    private final ItemRepository itemRepository;
+    private final boolean enabled;
+    private final int expectedItems;
+    private final double falsePositiveRate;
+
+    private final Counter rejected;
+    private final Counter passed;
+
+    private volatile Bits bits;
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+
+    // Под монитором фильтра: число идущих пересборок и id, добавленные за это время
+    private int rebuildsInFlight;
+    private final List<Long> putsDuringRebuild = new ArrayList<>();
+
+    public ItemIdBloomFilter(
+            ItemRepository itemRepository,
+            MeterRegistry meterRegistry,
+            @Value("${store.cache.bloom.enabled:true}") boolean enabled,
+            @Value("${store.cache.bloom.expected-items:100000}") int expectedItems,
+            @Value("${store.cache.bloom.false-positive-rate:0.01}") double falsePositiveRate
+    ) {
+        this.itemRepository = itemRepository;
+        this.enabled = enabled;
+        this.expectedItems = expectedItems;
+        this.falsePositiveRate = falsePositiveRate;
+        this.rejected = bloomCounter(meterRegistry, "rejected");
+        this.passed = bloomCounter(meterRegistry, "passed");
+    }
+
+    /**
+     * Перечитывает id из БД. Размер фильтра берётся с запасом: не меньше expected-items и вдвое больше каталога.
+     * При старте вызывается из CatalogWarmup до объявления готовности
+     */
+    public Mono<Integer> rebuild() {
+        if (!enabled) {
+            return Mono.just(0);
+        }
+        return Mono.defer(() -> {
+                    beginRebuild();
+                    return itemRepository.findAllIds().collectList();
+                })
+                .map(ids -> {
+                    build(ids);
+                    return ids.size();
+                })
+                .doFinally(signal -> endRebuild());
+    }
+
+    public synchronized void build(Collection<Long> ids) {
+        if (!enabled) {
+            return;
+        }
+        Bits next = new Bits(Math.max(expectedItems, (ids.size() + putsDuringRebuild.size()) * 2), falsePositiveRate);
+        ids.forEach(next::put);
+        putsDuringRebuild.forEach(next::put);
+        bits = next;
+    }
+
+    private synchronized void beginRebuild() {
+        rebuildsInFlight++;
+    }
+
+    private synchronized void endRebuild() {
+        // Пока идёт другая пересборка, её снимок id может не содержать этих добавлений
+        if (--rebuildsInFlight == 0) {
+            putsDuringRebuild.clear();
+        }
+    }
+
+    public synchronized void put(Long id) {
+        if (id == null) {
+            return;
+        }
+        if (rebuildsInFlight > 0) {
+            putsDuringRebuild.add(id);
+        }
+        Bits current = bits;
+        if (current == null) {
+            return;
+        }
+        current.put(id);
+        if (current.count() > current.capacity() && rebuilding.compareAndSet(false, true)) {
+            // Фильтр переполнен и теряет точность: пересобираем с большим размером
+            rebuild().doFinally(signal -> rebuilding.set(false)).subscribe(
+                    count -> System.out.println("ItemIdBloomFilter пересобран, id: " + count),
+                    error -> System.out.println("ItemIdBloomFilter rebuild error: " + error.getMessage())
+            );
+        }
+    }
+
+    public void putAll(Collection<Long> ids) {
+        ids.forEach(this::put);
+    }
+
+    /**
+     * false - товара с таким id точно нет
+     */
+    public boolean mightContain(Long id) {
+        Bits current = bits;
+        if (current == null || id == null) {
+            return true;
+        }
+        boolean result = current.mightContain(id);
+        (result ? passed : rejected).increment();
+        return result;
+    }
+
+    /**
+     * Отбрасывает id, которых точно нет
+     */
+    public List<Long> filter(Collection<Long> ids) {
+        return ids.stream().filter(this::mightContain).toList();
+    }
+
+    public boolean isReady() {
+        return bits != null;
+    }
+
+    @EventListener
+    public void onItemChanged(ItemChangedEvent event) {
+        if (!event.isDeleted()) {
+            put(event.itemId());
+        }
+    }
+
+    private static Counter bloomCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("store.cache.item.bloom")
+                .description("Проверки id товара фильтром Блума")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Битовый массив фильтра: k позиций на id через двойное хеширование
+     */
+    private static final class Bits {
+        private final AtomicLongArray words;
+        private final long bitCount;
+        private final int hashCount;
+        private final int capacity;
+        private final AtomicLong count = new AtomicLong();
+
+        Bits(int capacity, double falsePositiveRate) {
+            this.capacity = capacity;
+            long bitsNeeded = (long) Math.ceil(-capacity * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+            this.words = new AtomicLongArray((int) ((Math.max(64, bitsNeeded) + 63) / 64));
+            this.bitCount = words.length() * 64L;
+            this.hashCount = Math.max(1, (int) Math.round((double) bitCount / capacity * Math.log(2)));
+        }
+
+        void put(long id) {
+            long hash = mix(id);
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32);
+            for (int i = 1; i <= hashCount; i++) {
+                long bit = ((h1 + (long) i * h2) & Long.MAX_VALUE) % bitCount;
+                int word = (int) (bit >>> 6);
+                long mask = 1L << bit;
+                long value;
+                do {
+                    value = words.get(word);
+                } while ((value & mask) == 0 && !words.compareAndSet(word, value, value | mask));
+            }
+            count.incrementAndGet();
+        }
+
+        boolean mightContain(long id) {
+            long hash = mix(id);
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32);
+            for (int i = 1; i <= hashCount; i++) {
+                long bit = ((h1 + (long) i * h2) & Long.MAX_VALUE) % bitCount;
+                if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        long count() {
+            return count.get();
+        }
+
+        int capacity() {
+            return capacity;
+        }
+
+        private static long mix(long value) {
+            value = (value ^ (value >>> 30)) * 0xbf58476d1ce4e5b9L;
+            value = (value ^ (value >>> 27)) * 0x94d049bb133111ebL;
+            return value ^ (value >>> 31);
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package org.pl.service;
+
+import jakarta.annotation.PreDestroy;
+import org.pl.dao.Item;
+import org.pl.event.ItemChangedEvent;
+import org.pl.repository.ItemRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Шина инвалидации кэша товаров между экземплярами сервиса через Redis pub/sub.
+ * Изменения товаров копятся и отправляются пачками (не чаще одного сообщения за окно, не больше batch-size id),
+ * повторные изменения одного товара внутри пачки схлопываются.
+ * Получатель убирает товары из локального кэша, сбрасывает кэш страниц каталога, обновляет
+ * поисковый индекс по текущим строкам из БД и при включённом rewarm сразу загружает товары заново.
+ * Формат сообщения: "{nodeId}:{id},{id},...".
+ */
+@Component
+public class ItemInvalidationBus {
+
+    static final String CHANNEL = "store:items:invalidate";
+
+    private final ReactiveRedisTemplate<String, Object> reactiveRedisTemplate;
+    private final RedisCacheItemService redisCacheItemService;
+    private final ItemCacheService itemCacheService;
+    private final ItemIdBloomFilter itemIdBloomFilter;
+    private final CatalogPageCache catalogPageCache;
+    private final ItemRepository itemRepository;
+    private final ItemSearchIndex itemSearchIndex;
+    private final boolean enabled;
+    private final boolean rewarm;
+    private final String nodeId = UUID.randomUUID().toString();
+
+    private final Sinks.Many<Long> changes = Sinks.many().unicast().onBackpressureBuffer();
+    private final Disposable.Composite subscriptions = Disposables.composite();
+
+    public ItemInvalidationBus(
+            ReactiveRedisTemplate<String, Object> reactiveRedisTemplate,
+            RedisCacheItemService redisCacheItemService,
+            ItemCacheService itemCacheService,
+            ItemIdBloomFilter itemIdBloomFilter,
+            CatalogPageCache catalogPageCache,
+            ItemRepository itemRepository,
+            ItemSearchIndex itemSearchIndex,
+            @Value("${store.cache.invalidation.enabled:true}") boolean enabled,
+            @Value("${store.cache.invalidation.rewarm:false}") boolean rewarm,
+            @Value("${store.cache.invalidation.batch-size:500}") int batchSize,
+            @Value("${store.cache.invalidation.window:100ms}") Duration window
+    ) {
+        this.reactiveRedisTemplate = reactiveRedisTemplate;
+        this.redisCacheItemService = redisCacheItemService;
+        this.itemCacheService = itemCacheService;
+        this.itemIdBloomFilter = itemIdBloomFilter;
+        this.catalogPageCache = catalogPageCache;
+        this.itemRepository = itemRepository;
+        this.itemSearchIndex = itemSearchIndex;
+        this.enabled = enabled;
+        this.rewarm = rewarm;
+
+        if (enabled) {
+            subscriptions.add(changes.asFlux()
+                    .bufferTimeout(batchSize, window)
+                    .map(LinkedHashSet::new)
+                    .concatMap(this::publish)
+                    .subscribe());
+        }
+    }
+
+    @EventListener
+    public void onItemChanged(ItemChangedEvent event) {
+        if (enabled) {
+            changes.emitNext(event.itemId(), Sinks.EmitFailureHandler.busyLooping(Duration.ofMillis(100)));
+        }
+    }
+
+    /**
+     * Подписка на канал; пока Redis недоступен, переподключаемся с нарастающей паузой
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void subscribe() {
+        if (!enabled) {
+            return;
+        }
+        // listenToChannel открывает соединение сразу при вызове, поэтому оборачиваем в defer для повторов
+        subscriptions.add(Flux.defer(() -> reactiveRedisTemplate.listenToChannel(CHANNEL))
+                .doOnSubscribe(subscription -> System.out.println("ItemInvalidationBus subscribed to " + CHANNEL))
+                .retryWhen(Retry.backoff(Long.MAX_VALUE, Duration.ofSeconds(1))
+                        .maxBackoff(Duration.ofSeconds(30))
+                        .doBeforeRetry(signal -> System.out.println(
+                                "ItemInvalidationBus subscribe error: " + signal.failure().getMessage())))
+                .subscribe(message -> handleMessage(String.valueOf(message.getMessage()))));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        changes.tryEmitComplete();
+        subscriptions.dispose();
+    }
+
+    /**
+     * Пачка изменений: удаляем ключи из Redis одним DEL и оповещаем остальные узлы одним сообщением
+     */
+    private Mono<Void> publish(Set<Long> ids) {
+        String message = nodeId + ":" + ids.stream().map(String::valueOf).collect(Collectors.joining(","));
+        return redisCacheItemService.evictItems(ids)
+                .then(reactiveRedisTemplate.convertAndSend(CHANNEL, message))
+                .doOnNext(receivers -> System.out.println(
+                        "ItemInvalidationBus published " + ids.size() + " ids to " + receivers + " receivers"))
+                .onErrorResume(error -> {
+                    System.out.println("ItemInvalidationBus publish error: " + error.getMessage());
+                    return Mono.empty();
+                })
+                .then();
+    }
+
+    void handleMessage(String message) {
+        int separator = message.indexOf(':');
+        if (separator < 0 || message.substring(0, separator).equals(nodeId)) {
+            // Свои изменения уже убраны из локального кэша обработчиком ItemChangedEvent
+            return;
+        }
+        List<Long> ids;
+        try {
+            ids = Arrays.stream(message.substring(separator + 1).split(","))
+                    .filter(part -> !part.isEmpty())
+                    .map(Long::valueOf)
+                    .toList();
+        } catch (NumberFormatException e) {
+            System.out.println("ItemInvalidationBus bad message: " + message);
+            return;
+        }
+
+        // Товар мог быть создан на другом узле: добавляем id в фильтр Блума, чтобы он не отсекался
+        itemIdBloomFilter.putAll(ids);
+        ids.forEach(itemCacheService::evict);
+        catalogPageCache.bumpVersion();
+        refreshSearchIndex(ids);
+        if (rewarm && !ids.isEmpty()) {
+            itemCacheService.getItems(ids)
+                    .onErrorResume(error -> Mono.empty())
+                    .subscribe();
+        }
+    }
+
+    /**
+     * Индекс строится в памяти каждого узла: перечитываем изменённые товары одним запросом,
+     * найденные обновляем, отсутствующие в БД убираем. Событие ItemChangedEvent не публикуем,
+     * чтобы шина не переслала чужие изменения обратно
+     */
+    private void refreshSearchIndex(List<Long> ids) {
+        if (ids.isEmpty() || !itemSearchIndex.isReady()) {
+            return;
+        }
+        itemRepository.findAllById(ids)
+                .collectList()
+                .subscribe(
+                        items -> {
+                            Set<Long> found = items.stream().map(Item::getId).collect(Collectors.toSet());
+                            List<Long> removed = ids.stream().filter(id -> !found.contains(id)).toList();
+                            itemSearchIndex.apply(items, removed);
+                            catalogPageCache.bumpVersion();
+                        },
+                        error -> System.out.println("ItemInvalidationBus search index refresh error: " + error.getMessage())
+                );
+    }
+}
@@ -0,0 +1,412 @@
+package org.pl.service;
+
+import org.pl.dao.Item;
+import org.pl.dto.ItemSuggestionDto;
+import org.pl.event.ItemChangedEvent;
+import org.pl.repository.ItemRepository;
+import org.pl.repository.ItemSort;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Триграммный индекс по названиям (и, опционально, описаниям) товаров.
+ * Строится при старте из таблицы items и отвечает на поиск подстроки без обращения к БД.
+ * Индекс неизменяемый: каждое изменение собирает новый снимок и атомарно подменяет ссылку,
+ * поэтому чтение не требует блокировок. Изменения товаров редки, пересборка O(каталог) допустима.
+ * Изменения, пришедшие во время полной пересборки (в т.ч. до первого снимка), запоминаются и
+ * накладываются на новый снимок: иначе он затёр бы то, что изменилось после чтения каталога из БД.
+ */
+@Component
+public class ItemSearchIndex {
+
+    private static final int GRAM = 3;
+    private static final int SUGGEST_SCAN_LIMIT = 1000;
+
+    private final ItemRepository itemRepository;
+    private final boolean enabled;
+    private final boolean includeDescription;
+
+    private volatile Snapshot snapshot;
+
+    // Под монитором индекса: число идущих пересборок и последнее состояние изменённых за это время
+    // товаров (null - товар удалён)
+    private int rebuildsInFlight;
+    private final Map<Long, Item> changesDuringRebuild = new LinkedHashMap<>();
+
+    public ItemSearchIndex(
+            ItemRepository itemRepository,
+            @Value("${store.search.index.enabled:true}") boolean enabled,
+            @Value("${store.search.index.include-description:false}") boolean includeDescription
+    ) {
+        this.itemRepository = itemRepository;
+        this.enabled = enabled;
+        this.includeDescription = includeDescription;
+    }
+
+    /**
+     * Перечитывает каталог из БД и подменяет снимок индекса.
+     * При старте вызывается из CatalogWarmup до объявления готовности
+     */
+    public Mono<Integer> rebuild() {
+        if (!enabled) {
+            return Mono.just(0);
+        }
+        return Mono.defer(() -> {
+                    beginRebuild();
+                    return itemRepository.findAll().collectList();
+                })
+                .map(items -> {
+                    reindex(items);
+                    return items.size();
+                })
+                .doFinally(signal -> endRebuild());
+    }
+
+    public synchronized void reindex(Collection<Item> items) {
+        Map<Long, Doc> docs = new HashMap<>();
+        for (Item item : items) {
+            docs.put(item.getId(), Doc.of(item, includeDescription));
+        }
+        changesDuringRebuild.forEach((id, item) -> {
+            if (item == null) {
+                docs.remove(id);
+            } else {
+                docs.put(id, Doc.of(item, includeDescription));
+            }
+        });
+        snapshot = Snapshot.build(docs, includeDescription);
+    }
+
+    private synchronized void beginRebuild() {
+        rebuildsInFlight++;
+    }
+
+    private synchronized void endRebuild() {
+        // Пока идёт другая пересборка, прочитанный ею каталог может не содержать этих изменений
+        if (--rebuildsInFlight == 0) {
+            changesDuringRebuild.clear();
+        }
+    }
+
+    @EventListener
+    public void onItemChanged(ItemChangedEvent event) {
+        apply(
+                event.isDeleted() ? List.of() : List.of(event.item()),
+                event.isDeleted() ? List.of(event.itemId()) : List.of()
+        );
+    }
+
+    /**
+     * Применяет пачку изменений одной пересборкой снимка
+     */
+    public synchronized void apply(Collection<Item> upserts, Collection<Long> removedIds) {
+        if (rebuildsInFlight > 0) {
+            removedIds.forEach(id -> changesDuringRebuild.put(id, null));
+            upserts.forEach(item -> changesDuringRebuild.put(item.getId(), item));
+        }
+        Snapshot current = snapshot;
+        if (current == null) {
+            return;
+        }
+        Map<Long, Doc> docs = new HashMap<>(current.docs);
+        removedIds.forEach(docs::remove);
+        for (Item item : upserts) {
+            docs.put(item.getId(), Doc.of(item, includeDescription));
+        }
+        snapshot = Snapshot.build(docs, includeDescription);
+    }
+
+    public boolean isReady() {
+        return enabled && snapshot != null;
+    }
+
+    /**
+     * Все id товаров, содержащих query, в порядке сортировки.
+     * Для NO - по релевантности: совпадение с начала названия, затем с начала слова,
+     * затем по позиции в названии, затем совпадения только в описании.
+     */
+    public List<Long> search(String query, ItemSort sort) {
+        Snapshot current = snapshot;
+        if (current == null || query == null) {
+            return List.of();
+        }
+        String needle = query.trim().toLowerCase(Locale.ROOT);
+        if (needle.isEmpty()) {
+            return List.of();
+        }
+
+        List<Hit> hits = new ArrayList<>();
+        for (Doc doc : current.candidates(needle)) {
+            int rank = doc.rank(needle);
+            if (rank >= 0) {
+                hits.add(new Hit(doc, rank));
+            }
+        }
+
+        hits.sort(comparator(sort));
+        return hits.stream().map(hit -> hit.doc.id).toList();
+    }
+
+    /**
+     * Подсказки для автодополнения: товары, у которых название или одно из его слов
+     * начинается с prefix. Сначала совпадения с начала названия, затем более короткие названия.
+     */
+    public List<ItemSuggestionDto> suggest(String prefix, int limit) {
+        Snapshot current = snapshot;
+        if (current == null || prefix == null || limit <= 0) {
+            return List.of();
+        }
+        String needle = prefix.trim().toLowerCase(Locale.ROOT);
+        if (needle.isEmpty()) {
+            return List.of();
+        }
+
+        Map<Long, Integer> bestPosition = current.prefixMatches(needle, SUGGEST_SCAN_LIMIT);
+        return bestPosition.entrySet().stream()
+                .sorted(Comparator.<Map.Entry<Long, Integer>>comparingInt(entry -> entry.getValue() == 0 ? 0 : 1)
+                        .thenComparingInt(entry -> current.docs.get(entry.getKey()).titleLower.length())
+                        .thenComparing(entry -> current.docs.get(entry.getKey()).titleLower))
+                .limit(limit)
+                .map(entry -> new ItemSuggestionDto(entry.getKey(), current.docs.get(entry.getKey()).title))
+                .toList();
+    }
+
+    private static Comparator<Hit> comparator(ItemSort sort) {
+        Comparator<Hit> byId = Comparator.comparingLong(hit -> hit.doc.id);
+        return switch (sort) {
+            case PRICE_ASC -> Comparator.<Hit, BigDecimal>comparing(hit -> hit.doc.price).thenComparing(byId);
+            case PRICE_DESC -> Comparator.<Hit, BigDecimal>comparing(hit -> hit.doc.price).thenComparing(byId).reversed();
+            case ALPHA_ASC -> Comparator.<Hit, String>comparing(hit -> hit.doc.titleLower).thenComparing(byId);
+            case ALPHA_DESC -> Comparator.<Hit, String>comparing(hit -> hit.doc.titleLower).thenComparing(byId).reversed();
+            case NO -> Comparator.<Hit>comparingInt(hit -> hit.rank)
+                    .thenComparingInt(hit -> hit.doc.titleLower.length())
+                    .thenComparing(byId);
+        };
+    }
+
+    private record Hit(Doc doc, int rank) {
+    }
+
+    private record Doc(long id, String title, String titleLower, String descriptionLower, BigDecimal price) {
+
+        static Doc of(Item item, boolean includeDescription) {
+            String description = includeDescription && item.getDescription() != null
+                    ? item.getDescription().toLowerCase(Locale.ROOT)
+                    : null;
+            return new Doc(
+                    item.getId(),
+                    item.getTitle(),
+                    item.getTitle().toLowerCase(Locale.ROOT),
+                    description,
+                    item.getPrice()
+            );
+        }
+
+        /**
+         * Ранг совпадения (меньше - лучше) или -1, если подстроки нет
+         */
+        int rank(String needle) {
+            int position = titleLower.indexOf(needle);
+            if (position == 0) {
+                return 0;
+            }
+            if (position > 0) {
+                // Начало слова ранжируем выше совпадения в середине слова
+                return Character.isLetterOrDigit(titleLower.charAt(position - 1))
+                        ? 2 + Math.min(position, 1000)
+                        : 1;
+            }
+            if (descriptionLower != null && descriptionLower.contains(needle)) {
+                return 2000;
+            }
+            return -1;
+        }
+    }
+
+    private static final class Snapshot {
+        private final Map<Long, Doc> docs;
+        private final Map<String, long[]> postings;
+
+        // Отсортированные суффиксы названий, начинающиеся с начала слова, для поиска по префиксу
+        private final String[] prefixKeys;
+        private final long[] prefixIds;
+        private final int[] prefixPositions;
+
+        private Snapshot(
+                Map<Long, Doc> docs,
+                Map<String, long[]> postings,
+                String[] prefixKeys,
+                long[] prefixIds,
+                int[] prefixPositions
+        ) {
+            this.docs = docs;
+            this.postings = postings;
+            this.prefixKeys = prefixKeys;
+            this.prefixIds = prefixIds;
+            this.prefixPositions = prefixPositions;
+        }
+
+        static Snapshot build(Map<Long, Doc> docs, boolean includeDescription) {
+            // Идём по id по возрастанию, чтобы списки вхождений сразу были отсортированы
+            long[] ids = docs.keySet().stream().mapToLong(Long::longValue).sorted().toArray();
+            Map<String, LongList> lists = new HashMap<>();
+            for (long id : ids) {
+                Doc doc = docs.get(id);
+                Set<String> grams = new HashSet<>();
+                addGrams(doc.titleLower, grams);
+                if (includeDescription && doc.descriptionLower != null) {
+                    addGrams(doc.descriptionLower, grams);
+                }
+                for (String gram : grams) {
+                    lists.computeIfAbsent(gram, key -> new LongList()).add(id);
+                }
+            }
+
+            Map<String, long[]> postings = new HashMap<>(lists.size() * 2);
+            lists.forEach((gram, list) -> postings.put(gram, list.toArray()));
+
+            List<PrefixEntry> entries = new ArrayList<>();
+            for (Doc doc : docs.values()) {
+                String title = doc.titleLower;
+                for (int i = 0; i < title.length(); i++) {
+                    boolean wordStart = Character.isLetterOrDigit(title.charAt(i))
+                            && (i == 0 || !Character.isLetterOrDigit(title.charAt(i - 1)));
+                    if (wordStart) {
+                        entries.add(new PrefixEntry(title.substring(i), doc.id, i));
+                    }
+                }
+            }
+            entries.sort(Comparator.comparing(PrefixEntry::key));
+
+            String[] prefixKeys = new String[entries.size()];
+            long[] prefixIds = new long[entries.size()];
+            int[] prefixPositions = new int[entries.size()];
+            for (int i = 0; i < entries.size(); i++) {
+                PrefixEntry entry = entries.get(i);
+                prefixKeys[i] = entry.key;
+                prefixIds[i] = entry.id;
+                prefixPositions[i] = entry.position;
+            }
+
+            return new Snapshot(Map.copyOf(docs), postings, prefixKeys, prefixIds, prefixPositions);
+        }
+
+        /**
+         * Бинарным поиском находит диапазон ключей, начинающихся с needle.
+         * Возвращает id товара -> наименьшая позиция совпавшего слова в названии.
+         */
+        Map<Long, Integer> prefixMatches(String needle, int scanLimit) {
+            int low = 0;
+            int high = prefixKeys.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (prefixKeys[mid].compareTo(needle) < 0) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+
+            Map<Long, Integer> matches = new LinkedHashMap<>();
+            for (int i = low; i < prefixKeys.length && i - low < scanLimit; i++) {
+                if (!prefixKeys[i].startsWith(needle)) {
+                    break;
+                }
+                matches.merge(prefixIds[i], prefixPositions[i], Math::min);
+            }
+            return matches;
+        }
+
+        /**
+         * Кандидаты - пересечение списков вхождений всех триграмм запроса.
+         * Для запросов короче триграммы просматриваются все документы.
+         */
+        Collection<Doc> candidates(String needle) {
+            if (needle.length() < GRAM) {
+                return docs.values();
+            }
+
+            Set<String> grams = new HashSet<>();
+            addGrams(needle, grams);
+            List<long[]> lists = new ArrayList<>(grams.size());
+            for (String gram : grams) {
+                long[] list = postings.get(gram);
+                if (list == null) {
+                    return List.of();
+                }
+                lists.add(list);
+            }
+            lists.sort(Comparator.comparingInt(list -> list.length));
+
+            long[] result = lists.getFirst();
+            for (int i = 1; i < lists.size() && result.length > 0; i++) {
+                result = intersect(result, lists.get(i));
+            }
+
+            Map<Long, Doc> found = new LinkedHashMap<>();
+            for (long id : result) {
+                found.put(id, docs.get(id));
+            }
+            return found.values();
+        }
+
+        private static long[] intersect(long[] left, long[] right) {
+            long[] out = new long[Math.min(left.length, right.length)];
+            int i = 0;
+            int j = 0;
+            int size = 0;
+            while (i < left.length && j < right.length) {
+                if (left[i] == right[j]) {
+                    out[size++] = left[i];
+                    i++;
+                    j++;
+                } else if (left[i] < right[j]) {
+                    i++;
+                } else {
+                    j++;
+                }
+            }
+            return Arrays.copyOf(out, size);
+        }
+
+        private static void addGrams(String text, Set<String> grams) {
+            for (int i = 0; i + GRAM <= text.length(); i++) {
+                grams.add(text.substring(i, i + GRAM));
+            }
+        }
+    }
+
+    private record PrefixEntry(String key, long id, int position) {
+    }
+
+    private static final class LongList {
+        private long[] values = new long[4];
+        private int size;
+
+        void add(long value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        long[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
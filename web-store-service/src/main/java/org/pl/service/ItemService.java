@@ -1,19 +1,31 @@
 package org.pl.service;
 
 import org.pl.dao.Item;
+import org.pl.dto.ItemCursor;
+import org.pl.dto.ItemSuggestionDto;
+import org.pl.dto.ItemsCursorPage;
+import org.pl.dto.ItemsWithTotalDto;
+import org.pl.event.ItemChangedEvent;
 import org.pl.repository.ItemRepository;
+import org.pl.repository.ItemSort;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.reactive.TransactionalOperator;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.math.BigDecimal;
 import java.util.ArrayList;
-import java.util.Comparator;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.Objects;
+import java.util.Set;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
@@ -21,40 +33,85 @@ import java.util.stream.IntStream;
 public class ItemService {
 
     private final ItemRepository itemRepository;
+    private final ItemCacheService itemCacheService;
+    private final ItemSearchIndex itemSearchIndex;
+    private final CatalogPageCache catalogPageCache;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionalOperator transactionalOperator;
+    private final boolean searchEstimatedCount;
+    private final int searchCountCap;
 
-    public ItemService(ItemRepository itemRepository) {
+    public ItemService(
+            ItemRepository itemRepository,
+            ItemCacheService itemCacheService,
+            ItemSearchIndex itemSearchIndex,
+            CatalogPageCache catalogPageCache,
+            ApplicationEventPublisher eventPublisher,
+            TransactionalOperator transactionalOperator,
+            @Value("${store.items.search.estimated-count:false}") boolean searchEstimatedCount,
+            @Value("${store.items.search.count-cap:1000}") int searchCountCap
+    ) {
         this.itemRepository = itemRepository;
+        this.itemCacheService = itemCacheService;
+        this.itemSearchIndex = itemSearchIndex;
+        this.catalogPageCache = catalogPageCache;
+        this.eventPublisher = eventPublisher;
+        this.transactionalOperator = transactionalOperator;
+        this.searchEstimatedCount = searchEstimatedCount;
+        this.searchCountCap = searchCountCap;
     }
 
+    /**
+     * Сохраняет товар и оповещает подписчиков (поисковый индекс, кэши) об изменении.
+     * Событие публикуется после коммита: иначе кэши и индекс могли бы увидеть откатившуюся запись
+     */
+    public Mono<Item> saveItem(Item item) {
+        return transactionalOperator.transactional(itemRepository.save(item))
+                .doOnNext(saved -> eventPublisher.publishEvent(ItemChangedEvent.saved(saved)));
+    }
+
+    public Mono<Void> deleteItem(Long id) {
+        return transactionalOperator.transactional(itemRepository.deleteById(id))
+                .then(Mono.fromRunnable(() -> eventPublisher.publishEvent(ItemChangedEvent.deleted(id))));
+    }
+
+    /**
+     * Загружает товары по списку id через кэш товаров (L1, Redis, затем БД пачками)
+     */
     public Flux<Item> getItemByIds(List<Long> ids) {
-        return Flux.fromIterable(ids).flatMap(itemRepository::findById);
+        return itemCacheService.getItems(ids);
     }
 
     @Transactional(readOnly = true)
     public Mono<Page<List<Item>>> getItemsSorted(Pageable pageable, String sortBy, String title) {
-        Mono<List<Item>> itemsMono;
-        Mono<Long> countMono;
+        ItemSort sort = ItemSort.of(sortBy);
+        int pageSize = pageable.getPageSize();
+        long offset = pageable.getOffset();
 
-        if (title == null || title.isEmpty()) {
-            itemsMono = itemRepository.findAll().collectList();
-            countMono = itemRepository.count();
+        // Частые страницы берутся из кэша списков id: товары подтягиваются через кэш товаров, без SQL
+        String search = CatalogPageCache.normalize(title);
+        CatalogPageCache.PageKey key = catalogPageCache.key(sort, search, pageable.getPageNumber(), pageSize);
+        CatalogPageCache.PageIds cached = catalogPageCache.get(key);
+        Mono<ItemsWithTotalDto> pageMono;
+        if (cached != null) {
+            pageMono = hydrate(cached.ids())
+                    .map(items -> new ItemsWithTotalDto(items, cached.total(), cached.estimated()));
         } else {
-            itemsMono = itemRepository.findByTitleContainingIgnoreCase(title).collectList();
-            countMono = itemRepository.findByTitleContainingIgnoreCase(title).count();
+            pageMono = loadPage(sort, search, pageSize, offset)
+                    .doOnNext(page -> catalogPageCache.put(key, new CatalogPageCache.PageIds(
+                            page.items().stream().map(Item::getId).toList(), page.total(), page.estimated()
+                    )));
         }
 
-        return Mono.zip(itemsMono, countMono)
-                .map(tuple -> {
-                    List<Item> allItems = tuple.getT1();
-                    Long totalCount = tuple.getT2();
-
-                    // Применяем сортировку
-                    List<Item> sortedItems = sortItems(allItems, sortBy);
+        return pageMono
+                .map(page -> {
+                    List<Item> pagedItems = page.items();
+                    long totalCount = page.total();
 
-                    // Применяем пагинацию
-                    int start = pageable.getPageNumber() * pageable.getPageSize();
-                    int end = Math.min(start + pageable.getPageSize(), sortedItems.size());
-                    List<Item> pagedItems = sortedItems.subList(start, end);
+                    // Оценка ограничена сверху: не даём ей спрятать следующую страницу
+                    if (page.estimated() && pagedItems.size() == pageSize) {
+                        totalCount = Math.max(totalCount, offset + pageSize + 1);
+                    }
 
                     // Разбиваем на чанки по 3
                     List<List<Item>> chunkedItems = chunkList(pagedItems);
@@ -67,23 +124,143 @@ public class ItemService {
                 });
     }
 
-    private List<Item> sortItems(List<Item> items, String sortBy) {
-        return switch (sortBy) {
-            case "PRICE_ASC" -> items.stream()
-                    .sorted(Comparator.comparing(Item::getPrice))
-                    .collect(Collectors.toList());
-            case "PRICE_DESC" -> items.stream()
-                    .sorted(Comparator.comparing(Item::getPrice).reversed())
-                    .collect(Collectors.toList());
-            case "ALPHA_ASC" -> items.stream()
-                    .sorted(Comparator.comparing(item -> item.getTitle().toLowerCase()))
-                    .collect(Collectors.toList());
-            case "ALPHA_DESC" -> items.stream()
-                    .sorted(Comparator.comparing((Item item) -> item.getTitle().toLowerCase()).reversed())
-                    .collect(Collectors.toList());
-            case "NO" -> items;
-            default -> throw new IllegalStateException("Unexpected value: " + sortBy);
-        };
+    /**
+     * Страница каталога из БД или поискового индекса
+     */
+    private Mono<ItemsWithTotalDto> loadPage(ItemSort sort, String search, int pageSize, long offset) {
+        // Сортировка и пагинация выполняются в БД: в памяти только одна страница
+        if (search == null) {
+            return Mono.zip(
+                            itemRepository.findPage(null, sort, pageSize, offset).collectList(),
+                            itemRepository.count()
+                    )
+                    .map(tuple -> new ItemsWithTotalDto(tuple.getT1(), tuple.getT2(), false));
+        }
+        if (itemSearchIndex.isReady()) {
+            // Поиск по индексу в памяти: из БД читаются только товары текущей страницы
+            List<Long> ids = itemSearchIndex.search(search, sort);
+            int from = (int) Math.min(offset, ids.size());
+            int to = (int) Math.min(offset + pageSize, ids.size());
+            return hydrate(ids.subList(from, to))
+                    .map(items -> new ItemsWithTotalDto(items, ids.size(), false));
+        }
+        // Поиск: строки страницы и количество совпадений одним запросом
+        return itemRepository.findPageWithTotal(
+                search, sort, pageSize, offset, searchEstimatedCount ? searchCountCap : null
+        );
+    }
+
+    /**
+     * Подсказки для строки поиска. Отвечает только из индекса в памяти и не обращается к БД;
+     * пока индекс не построен, подсказок нет.
+     */
+    public Mono<List<ItemSuggestionDto>> suggest(String prefix, int limit) {
+        if (!itemSearchIndex.isReady()) {
+            return Mono.just(List.of());
+        }
+        return Mono.just(itemSearchIndex.suggest(prefix, limit));
+    }
+
+    /**
+     * Keyset-пагинация: страница читается от позиции курсора,
+     * поэтому стоимость запроса не зависит от глубины листания.
+     * Поиск, который обслуживает индекс в памяти, продолжается в порядке индекса (для NO - по релевантности),
+     * а не SQL-выборкой по id: иначе порядок соседних страниц не совпадал бы
+     */
+    @Transactional(readOnly = true)
+    public Mono<ItemsCursorPage> getItemsByCursor(ItemCursor cursor, int pageSize, String title) {
+        ItemSort sort = cursor.sort();
+        // Поиск нормализуется так же, как в getItemsSorted: иначе совпадения зависят от способа перехода
+        String search = CatalogPageCache.normalize(title);
+        if (search != null && itemSearchIndex.isReady()) {
+            return getIndexedItemsByCursor(cursor, pageSize, search);
+        }
+
+        // Берём на одну строку больше, чтобы узнать, есть ли следующая страница в этом направлении
+        return itemRepository
+                .findPageAfter(search, sort, cursor.parsedKey(), cursor.id(), cursor.backward(), pageSize + 1)
+                .collectList()
+                .map(rows -> {
+                    boolean hasMore = rows.size() > pageSize;
+                    List<Item> pagedItems = new ArrayList<>(hasMore ? rows.subList(0, pageSize) : rows);
+
+                    boolean hasPrevious;
+                    boolean hasNext;
+                    int pageNumber = cursor.pageNumber();
+                    if (cursor.backward()) {
+                        Collections.reverse(pagedItems);
+                        hasPrevious = hasMore;
+                        hasNext = true;
+                        if (!hasPrevious) {
+                            pageNumber = 1;
+                        }
+                    } else {
+                        hasPrevious = true;
+                        hasNext = hasMore;
+                    }
+
+                    return cursorPage(sort, pagedItems, pageNumber, pageSize, hasPrevious, hasNext);
+                });
+    }
+
+    /**
+     * Страница поиска по индексу: позиция курсора ищется в ранжированном списке id.
+     * Если товара из курсора в выдаче уже нет, листание начинается с первой страницы
+     */
+    private Mono<ItemsCursorPage> getIndexedItemsByCursor(ItemCursor cursor, int pageSize, String search) {
+        ItemSort sort = cursor.sort();
+        List<Long> ids = itemSearchIndex.search(search, sort);
+        int position = ids.indexOf(cursor.id());
+
+        int from;
+        int to;
+        int pageNumber = cursor.pageNumber();
+        if (position < 0) {
+            from = 0;
+            to = Math.min(pageSize, ids.size());
+            pageNumber = 1;
+        } else if (cursor.backward()) {
+            to = position;
+            from = Math.max(0, to - pageSize);
+            if (from == 0) {
+                pageNumber = 1;
+            }
+        } else {
+            from = position + 1;
+            to = Math.min(from + pageSize, ids.size());
+        }
+
+        boolean hasPrevious = from > 0;
+        boolean hasNext = to < ids.size();
+        int currentPage = pageNumber;
+        return hydrate(ids.subList(from, to))
+                .map(items -> cursorPage(sort, items, currentPage, pageSize, hasPrevious, hasNext));
+    }
+
+    private ItemsCursorPage cursorPage(
+            ItemSort sort,
+            List<Item> pagedItems,
+            int pageNumber,
+            int pageSize,
+            boolean hasPrevious,
+            boolean hasNext
+    ) {
+        String prevCursor = hasPrevious && !pagedItems.isEmpty()
+                ? ItemCursor.before(sort, pagedItems.getFirst(), pageNumber - 1).encode()
+                : null;
+        String nextCursor = hasNext && !pagedItems.isEmpty()
+                ? ItemCursor.after(sort, pagedItems.getLast(), pageNumber + 1).encode()
+                : null;
+
+        return new ItemsCursorPage(
+                chunkList(pagedItems),
+                pageNumber,
+                pageSize,
+                prevCursor != null,
+                nextCursor != null,
+                prevCursor,
+                nextCursor
+        );
     }
 
     @Transactional(readOnly = true)
@@ -91,6 +268,28 @@ public class ItemService {
         return itemRepository.findById(id);
     }
 
+    /**
+     * Какие из id есть в БД - один IN-запрос; проверка идёт мимо кэша, т.к. нужна перед записью
+     */
+    @Transactional(readOnly = true)
+    public Mono<Set<Long>> getExistingIds(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return Mono.just(Set.of());
+        }
+        return itemRepository.findExistingIds(ids).collect(Collectors.toSet());
+    }
+
+    /**
+     * Товары по id одним запросом к БД мимо кэша - для расчётов, где устаревшая цена недопустима
+     */
+    @Transactional(readOnly = true)
+    public Flux<Item> getCurrentItemsByIds(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return Flux.empty();
+        }
+        return itemRepository.findAllById(ids);
+    }
+
     @Transactional(readOnly = true)
     public Mono<BigDecimal> getPriceById(Long id) {
         return getItemById(id)
@@ -98,6 +297,21 @@ public class ItemService {
                 .switchIfEmpty(Mono.error(new RuntimeException("Item not found")));
     }
 
+    /**
+     * Загружает товары по списку id, сохраняя порядок списка
+     */
+    private Mono<List<Item>> hydrate(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return Mono.just(List.of());
+        }
+        return getItemByIds(ids)
+                .collectMap(Item::getId)
+                .map(itemsById -> ids.stream()
+                        .map(itemsById::get)
+                        .filter(Objects::nonNull)
+                        .toList());
+    }
+
     private List<List<Item>> chunkList(List<Item> items) {
         int chunkSize = 3;
         return IntStream.range(0, (items.size() + chunkSize - 1) / chunkSize)
@@ -12,6 +12,7 @@ import org.springframework.transaction.annotation.Transactional;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
@@ -132,17 +133,25 @@ public class OrderItemService {
                 });
     }
 
+    /**
+     * Сохраняет строки заказа: наличие всех товаров проверяется одним IN-запросом,
+     * строки пишутся многострочным INSERT. Позиции с несуществующими товарами пропускаются
+     */
     @Transactional()
     public Mono<Void> saveOrder(Order order, Map<Long, Integer> cartItems) {
-        return Flux.fromIterable(cartItems.entrySet())
-                .flatMap(entry -> {
-                    Long itemId = entry.getKey();
-                    Integer quantity = entry.getValue();
-
-                    return itemService.getItemById(itemId)
-                            .map(item -> new OrderItem(order.getId(), itemId, quantity))
-                            .flatMap(orderItemRepository::save);
+        return itemService.getExistingIds(cartItems.keySet())
+                .flatMap(existingIds -> {
+                    List<OrderItem> orderItems = new ArrayList<>(existingIds.size());
+                    cartItems.forEach((itemId, quantity) -> {
+                        if (existingIds.contains(itemId)) {
+                            orderItems.add(new OrderItem(order.getId(), itemId, quantity));
+                        } else {
+                            System.out.println("Товар ID " + itemId + " не найден, позиция не сохранена");
+                        }
+                    });
+                    return orderItemRepository.insertAll(orderItems);
                 })
+                .doOnNext(saved -> System.out.println("Сохранено строк заказа: " + saved))
                 .then();
     }
 }
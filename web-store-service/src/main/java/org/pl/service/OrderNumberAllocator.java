@@ -0,0 +1,95 @@
+package org.pl.service;
+
+import org.pl.repository.OrderRepository;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Выдача порядковых номеров заказов блоками (hi-lo).
+ * Одно обращение к последовательности order_number_seq резервирует за узлом блок номеров размером
+ * с её шаг (INCREMENT BY читается из БД при первом резервировании, поэтому не может разойтись со схемой),
+ * дальше номера раздаются из памяти счётчиком без запросов к БД. Блоки разных узлов не пересекаются,
+ * поэтому номера уникальны и при параллельном оформлении заказов; неиспользованный остаток блока
+ * после перезапуска просто пропускается.
+ */
+@Component
+public class OrderNumberAllocator {
+
+    private final OrderRepository orderRepository;
+    private volatile Long blockSize;
+
+    private volatile Block current = new Block(1, 0);
+    private Mono<Block> refill;
+
+    public OrderNumberAllocator(OrderRepository orderRepository) {
+        this.orderRepository = orderRepository;
+    }
+
+    /**
+     * Следующий номер; к БД обращается только когда текущий блок исчерпан
+     */
+    public Mono<Long> next() {
+        return Mono.defer(() -> {
+            Block block = current;
+            long number = block.next.getAndIncrement();
+            if (number <= block.last) {
+                return Mono.just(number);
+            }
+            return refill(block).then(next());
+        });
+    }
+
+    /**
+     * Резервирует новый блок; одновременные запросы при исчерпании блока ждут одно обращение к БД
+     */
+    private synchronized Mono<Block> refill(Block exhausted) {
+        if (current != exhausted) {
+            return Mono.just(current);
+        }
+        if (refill == null) {
+            refill = blockSize()
+                    .flatMap(size -> orderRepository.nextOrderNumberBlock()
+                            .map(hi -> new Block(hi - size + 1, hi)))
+                    .doOnNext(block -> {
+                        System.out.println("Зарезервирован блок номеров заказов " + block.first + ".." + block.last);
+                        replace(block);
+                    })
+                    .doOnError(error -> clearRefill())
+                    .cache();
+        }
+        return refill;
+    }
+
+    private Mono<Long> blockSize() {
+        Long size = blockSize;
+        if (size != null) {
+            return Mono.just(size);
+        }
+        return orderRepository.findOrderNumberBlockSize()
+                .switchIfEmpty(Mono.error(new IllegalStateException("Sequence order_number_seq not found")))
+                .doOnNext(found -> blockSize = found);
+    }
+
+    private synchronized void replace(Block block) {
+        current = block;
+        refill = null;
+    }
+
+    private synchronized void clearRefill() {
+        refill = null;
+    }
+
+    private static final class Block {
+        private final long first;
+        private final long last;
+        private final AtomicLong next;
+
+        private Block(long first, long last) {
+            this.first = first;
+            this.last = last;
+            this.next = new AtomicLong(first);
+        }
+    }
+}
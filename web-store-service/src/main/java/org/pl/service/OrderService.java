@@ -14,42 +14,48 @@ import java.time.LocalDateTime;
 public class OrderService {
 
     private final OrderRepository orderRepository;
+    private final OrderNumberAllocator orderNumberAllocator;
 
-    public OrderService(OrderRepository orderRepository) {
+    public OrderService(OrderRepository orderRepository, OrderNumberAllocator orderNumberAllocator) {
         this.orderRepository = orderRepository;
+        this.orderNumberAllocator = orderNumberAllocator;
     }
 
     @Transactional()
     public Mono<Order> createOrder(BigDecimal totalAmount) {
+        return createOrder(totalAmount, null);
+    }
+
+    /**
+     * Заказ с ключом идемпотентности; ключ уникален, второй заказ с тем же ключом не сохранится
+     */
+    @Transactional()
+    public Mono<Order> createOrder(BigDecimal totalAmount, String idempotencyKey) {
         return generateNextOrderNumber()
-                .map(orderNumber -> new Order(
-                        orderNumber,
-                        totalAmount,
-                        LocalDateTime.now()
-                ))
+                .map(orderNumber -> {
+                    Order order = new Order(orderNumber, totalAmount, LocalDateTime.now());
+                    order.setIdempotencyKey(idempotencyKey);
+                    return order;
+                })
                 .flatMap(orderRepository::save);
     }
 
+    /**
+     * Заказ, уже оформленный с этим ключом идемпотентности; пусто, если ключа нет или заказа нет
+     */
     @Transactional(readOnly = true)
+    public Mono<Order> findByIdempotencyKey(String idempotencyKey) {
+        if (idempotencyKey == null) {
+            return Mono.empty();
+        }
+        return orderRepository.findByIdempotencyKey(idempotencyKey);
+    }
+
+    /**
+     * Номер вида ORD-2024-001: год оформления и порядковый номер из блока, выделенного узлу
+     */
     public Mono<String> generateNextOrderNumber() {
-        int currentYear = LocalDate.now().getYear();
-
-        return orderRepository.findLastOrderNumber()
-                .defaultIfEmpty("")
-                .map(lastNumber -> {
-                    int nextSequence = 1;
-                    if (lastNumber != null && !lastNumber.isEmpty()) {
-                        String[] parts = lastNumber.split("-");
-                        if (parts.length == 3) {
-                            try {
-                                int lastSequence = Integer.parseInt(parts[2]);
-                                nextSequence = lastSequence + 1;
-                            } catch (NumberFormatException e) {
-                                nextSequence = 1;
-                            }
-                        }
-                    }
-                    return String.format("ORD-%d-%03d", currentYear, nextSequence);
-                });
+        return orderNumberAllocator.next()
+                .map(sequence -> String.format("ORD-%d-%03d", LocalDate.now().getYear(), sequence));
     }
 }
@@ -1,24 +1,48 @@
 package org.pl.service;
 
+import org.pl.config.RedisCacheProperties;
 import org.pl.dao.Item;
+import org.springframework.data.redis.connection.ReactiveStringCommands;
 import org.springframework.data.redis.core.ReactiveRedisTemplate;
 import org.springframework.data.redis.core.ReactiveValueOperations;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.data.redis.serializer.RedisSerializationContext;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Stream;
 
 @Service
 public class RedisCacheItemService {
 
 
-    private static final Duration DEFAULT_TTL = Duration.ofSeconds(10);
+    private final ReactiveRedisTemplate<String, Object> reactiveRedisTemplate;
     private final ReactiveValueOperations<String, Object> valueOps;
+    private final RedisCacheProperties cacheProperties;
     private static final String ITEM_KEY_PREFIX = "item:";
+    private static final String MISSING_KEY_PREFIX = "item:missing:";
+
+    /**
+     * Товар из кэша и оставшееся время жизни его ключа
+     */
+    public record CachedItem(Item item, Duration remainingTtl) {
+    }
 
 
-    public RedisCacheItemService(ReactiveRedisTemplate<String, Object> reactiveRedisTemplate) {
+    public RedisCacheItemService(
+            ReactiveRedisTemplate<String, Object> reactiveRedisTemplate,
+            RedisCacheProperties cacheProperties
+    ) {
+        this.reactiveRedisTemplate = reactiveRedisTemplate;
         this.valueOps = reactiveRedisTemplate.opsForValue();
+        this.cacheProperties = cacheProperties;
     }
 
     public Mono<Item> getItemFromCache(Long id) {
@@ -32,8 +56,49 @@ public class RedisCacheItemService {
                 }).doOnError(error -> System.out.println("getItemFromCache error: " + error.getMessage()));
     }
 
+    /**
+     * Товар вместе с остатком TTL: GET и PTTL отправляются одновременно по одному соединению
+     */
+    public Mono<CachedItem> getCachedItem(Long id) {
+        String key = buildItemKey(id);
+        return Mono.zip(
+                        valueOps.get(key).cast(Item.class),
+                        reactiveRedisTemplate.getExpire(key).defaultIfEmpty(Duration.ofSeconds(-1))
+                )
+                .map(tuple -> new CachedItem(tuple.getT1(), tuple.getT2()))
+                .doOnError(error -> System.out.println("getCachedItem error: " + error.getMessage()));
+    }
+
+    /**
+     * Получает товары из кэша одним MGET. Возвращает только найденные товары (id -> item);
+     * при недоступности Redis - пустую карту, чтобы запрос ушёл в БД
+     */
+    public Mono<Map<Long, Item>> getItemsFromCache(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return Mono.just(Map.of());
+        }
+        List<Long> idList = List.copyOf(ids);
+        List<String> keys = idList.stream().map(this::buildItemKey).toList();
+
+        return valueOps.multiGet(keys)
+                .map(values -> {
+                    Map<Long, Item> items = new HashMap<>();
+                    for (int i = 0; i < values.size(); i++) {
+                        if (values.get(i) instanceof Item item) {
+                            items.put(idList.get(i), item);
+                        }
+                    }
+                    System.out.println("getItemsFromCache hits = " + items.size() + " of " + idList.size());
+                    return items;
+                })
+                .onErrorResume(error -> {
+                    System.out.println("getItemsFromCache error: " + error.getMessage());
+                    return Mono.just(Map.of());
+                });
+    }
+
     public Mono<Boolean> saveItemToCache(Item item) {
-        return saveItemToCache(item, DEFAULT_TTL);
+        return saveItemToCache(item, cacheProperties.jitteredTtlFor(RedisCacheProperties.ITEM));
     }
 
     public Mono<Boolean> saveItemToCache(Item item, Duration ttl) {
@@ -50,6 +115,73 @@ public class RedisCacheItemService {
         }).doOnError(error -> System.out.println("saveItemToCache error: " + error.getMessage()));
     }
 
+    /**
+     * Пакетное сохранение; у каждого ключа свой TTL со случайным разбросом
+     */
+    public Mono<Long> saveItemsToCache(Collection<Item> items) {
+        return saveItemsToCache(items, item -> cacheProperties.jitteredTtlFor(RedisCacheProperties.ITEM));
+    }
+
+    public Mono<Long> saveItemsToCache(Collection<Item> items, Duration ttl) {
+        return saveItemsToCache(items, item -> ttl);
+    }
+
+    /**
+     * Сохраняет товары пачкой SET ... EX по одному соединению: команды уходят конвейером (pipeline),
+     * без ожидания ответа на каждую. Возвращает количество успешно записанных ключей
+     */
+    private Mono<Long> saveItemsToCache(Collection<Item> items, Function<Item, Duration> ttl) {
+        List<Item> toSave = items.stream()
+                .filter(item -> item != null && item.getId() != null)
+                .toList();
+        if (toSave.isEmpty()) {
+            return Mono.just(0L);
+        }
+
+        RedisSerializationContext<String, Object> context = reactiveRedisTemplate.getSerializationContext();
+        Flux<ReactiveStringCommands.SetCommand> commands = Flux.fromIterable(toSave)
+                .map(item -> ReactiveStringCommands.SetCommand
+                        .set(context.getKeySerializationPair().write(buildItemKey(item.getId())))
+                        .value(context.getValueSerializationPair().write(item))
+                        .expiring(Expiration.from(ttl.apply(item))));
+
+        return reactiveRedisTemplate
+                .execute(connection -> connection.stringCommands().set(commands))
+                .filter(response -> Boolean.TRUE.equals(response.getOutput()))
+                .count()
+                .doOnSuccess(saved -> System.out.println("saveItemsToCache saved = " + saved + " of " + toSave.size()))
+                .doOnError(error -> System.out.println("saveItemsToCache error: " + error.getMessage()));
+    }
+
+    /**
+     * Негативный кэш: запоминает, что товара с таким id нет в БД (короткий TTL семейства missing)
+     */
+    public Mono<Boolean> markMissing(Long id) {
+        return valueOps.set(MISSING_KEY_PREFIX + id, Boolean.TRUE.toString(),
+                        cacheProperties.jitteredTtlFor(RedisCacheProperties.MISSING))
+                .doOnError(error -> System.out.println("markMissing error: " + error.getMessage()));
+    }
+
+    public Mono<Boolean> isMarkedMissing(Long id) {
+        return reactiveRedisTemplate.hasKey(MISSING_KEY_PREFIX + id)
+                .doOnError(error -> System.out.println("isMarkedMissing error: " + error.getMessage()));
+    }
+
+    /**
+     * Удаляет ключи товаров и их негативные отметки одной командой DEL
+     */
+    public Mono<Long> evictItems(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return Mono.just(0L);
+        }
+        String[] keys = ids.stream()
+                .flatMap(id -> Stream.of(buildItemKey(id), MISSING_KEY_PREFIX + id))
+                .toArray(String[]::new);
+        return reactiveRedisTemplate.delete(keys)
+                .doOnSuccess(deleted -> System.out.println("evictItems deleted = " + deleted))
+                .doOnError(error -> System.out.println("evictItems error: " + error.getMessage()));
+    }
+
     private String buildItemKey(Long id) {
         return ITEM_KEY_PREFIX + id;
     }
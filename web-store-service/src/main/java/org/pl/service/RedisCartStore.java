@@ -0,0 +1,99 @@
+package org.pl.service;
+
+import org.pl.dto.Cart;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebSession;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Корзина как Redis hash "cart:{sessionId}" (id товара -> количество).
+ * Каждое изменение - один атомарный вызов Lua-скрипта (HINCRBY-подобное изменение, запрет отрицательных,
+ * HDEL при нуле, продление TTL) без перезаписи сессии; одновременные клики из разных вкладок не теряются.
+ */
+@Component
+@ConditionalOnProperty(name = "store.cart.backend", havingValue = "redis")
+public class RedisCartStore implements CartStore {
+
+    private static final String CART_KEY_PREFIX = "cart:";
+    private static final RedisScript<Long> UPDATE_SCRIPT =
+            RedisScript.of(new ClassPathResource("scripts/cart_update.lua"), Long.class);
+
+    private final ReactiveStringRedisTemplate redisTemplate;
+    private final Duration ttl;
+
+    public RedisCartStore(
+            ReactiveStringRedisTemplate redisTemplate,
+            @Value("${store.cart.ttl:7d}") Duration ttl
+    ) {
+        this.redisTemplate = redisTemplate;
+        this.ttl = ttl;
+    }
+
+    @Override
+    public Mono<Map<Long, Integer>> getCartItems(ServerWebExchange exchange) {
+        return cartKey(exchange)
+                .flatMap(key -> redisTemplate.<String, String>opsForHash().entries(key)
+                        .collect(Cart::new, (cart, entry) ->
+                                cart.set(Long.parseLong(entry.getKey()), Integer.parseInt(entry.getValue()))))
+                .map(cart -> (Map<Long, Integer>) cart);
+    }
+
+    @Override
+    public Mono<Void> clear(ServerWebExchange exchange) {
+        return cartKey(exchange).flatMap(redisTemplate::delete).then();
+    }
+
+    @Override
+    public Mono<Void> remove(ServerWebExchange exchange, Long itemId) {
+        return change(exchange, itemId, 0);
+    }
+
+    @Override
+    public Mono<Void> change(ServerWebExchange exchange, Long itemId, int delta) {
+        return cartKey(exchange)
+                .flatMap(key -> redisTemplate.execute(
+                                UPDATE_SCRIPT,
+                                List.of(key),
+                                List.of(String.valueOf(itemId), String.valueOf(delta), String.valueOf(ttl.toSeconds()))
+                        )
+                        .next())
+                .then();
+    }
+
+    @Override
+    public Mono<Integer> countItems(ServerWebExchange exchange, Map<Long, Integer> items) {
+        // Пустые позиции скрипт удаляет сам, корзина уже прочитана - второй запрос в Redis не нужен
+        if (items instanceof Cart cart) {
+            return Mono.just(cart.totalQuantity());
+        }
+        return Mono.just(items.values().stream().mapToInt(Integer::intValue).sum());
+    }
+
+    /**
+     * Ключ корзины по id сессии. Сессия помечается начатой, чтобы id сохранился между запросами,
+     * хотя атрибутов в ней может и не быть
+     */
+    private Mono<String> cartKey(ServerWebExchange exchange) {
+        return exchange.getSession()
+                .map(session -> {
+                    startSession(session);
+                    return CART_KEY_PREFIX + session.getId();
+                });
+    }
+
+    private static void startSession(WebSession session) {
+        if (!session.isStarted()) {
+            session.start();
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package org.pl.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.pl.dto.Cart;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebSession;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+
+/**
+ * Корзина как атрибут "cartItems" в WebSession (компактный {@link Cart}). Сессия сохраняется только если корзина
+ * действительно изменилась: чтение каталога и повторные нулевые операции в хранилище не пишут
+ */
+@Component
+@ConditionalOnProperty(name = "store.cart.backend", havingValue = "session", matchIfMissing = true)
+public class SessionCartStore implements CartStore {
+
+    private static final String CART_ATTRIBUTE = "cartItems";
+
+    private final Counter savesWritten;
+    private final Counter savesAvoided;
+
+    public SessionCartStore(MeterRegistry meterRegistry) {
+        this.savesWritten = saveCounter(meterRegistry, "written");
+        this.savesAvoided = saveCounter(meterRegistry, "avoided");
+    }
+
+    /**
+     * Сессия в Redis сохраняет только атрибуты, переданные через put: изменение карты на месте
+     * не попадёт в хранилище, поэтому после изменения корзины кладём её заново
+     */
+    private static void markCartChanged(WebSession session, Map<Long, Integer> items) {
+        session.getAttributes().put(CART_ATTRIBUTE, items);
+    }
+
+    /**
+     * Корзина из сессии; корзина, сохранённая раньше как обычная карта, переводится в Cart
+     */
+    private static Cart storedCart(WebSession session) {
+        Map<Long, Integer> items = session.getAttribute(CART_ATTRIBUTE);
+        if (items == null || items instanceof Cart) {
+            return (Cart) items;
+        }
+        Cart cart = Cart.copyOf(items);
+        session.getAttributes().put(CART_ATTRIBUTE, cart);
+        return cart;
+    }
+
+    private static Cart cartOf(WebSession session) {
+        Cart cart = storedCart(session);
+        if (cart == null) {
+            cart = new Cart();
+            session.getAttributes().put(CART_ATTRIBUTE, cart);
+        }
+        return cart;
+    }
+
+    /**
+     * Сохраняет сессию, только если корзина помечена изменённой
+     */
+    private Mono<Void> saveIfDirty(WebSession session, Map<Long, Integer> items, boolean dirty) {
+        if (!dirty) {
+            savesAvoided.increment();
+            return Mono.empty();
+        }
+        markCartChanged(session, items);
+        savesWritten.increment();
+        return session.save();
+    }
+
+    @Override
+    public Mono<Map<Long, Integer>> getCartItems(ServerWebExchange exchange) {
+        // Пустую корзину в сессию не кладём: иначе простой просмотр каталога создаёт и сохраняет сессию
+        return exchange.getSession()
+                .map(session -> {
+                    Cart cart = storedCart(session);
+                    return cart != null ? cart : new Cart();
+                });
+    }
+
+    @Override
+    public Mono<Void> clear(ServerWebExchange exchange) {
+        return exchange.getSession()
+                .flatMap(session -> {
+                    Cart cart = storedCart(session);
+                    boolean dirty = cart != null && !cart.isEmpty();
+                    if (dirty) {
+                        cart.clear();
+                    }
+                    return saveIfDirty(session, cart, dirty);
+                });
+    }
+
+    @Override
+    public Mono<Void> remove(ServerWebExchange exchange, Long itemId) {
+        return exchange.getSession()
+                .flatMap(session -> {
+                    Cart cart = storedCart(session);
+                    boolean dirty = cart != null && cart.removeLine(itemId);
+                    return saveIfDirty(session, cart, dirty);
+                });
+    }
+
+    @Override
+    public Mono<Void> change(ServerWebExchange exchange, Long itemId, int delta) {
+        return exchange.getSession()
+                .flatMap(session -> {
+                    Cart cart = cartOf(session);
+                    int current = cart.quantity(itemId);
+
+                    boolean dirty = false;
+                    if (delta == 0) {
+                        dirty = cart.removeLine(itemId);
+                    } else if (current + delta >= 0) {
+                        cart.set(itemId, current + delta);
+                        dirty = true;
+                    }
+                    return saveIfDirty(session, cart, dirty);
+                });
+    }
+
+    @Override
+    public Mono<Integer> countItems(ServerWebExchange exchange, Map<Long, Integer> items) {
+        return exchange.getSession()
+                .flatMap(session -> {
+                    Cart cart = items instanceof Cart compact ? compact : Cart.copyOf(items);
+                    boolean dirty = cart.removeEmptyLines();
+                    return saveIfDirty(session, cart, dirty).thenReturn(cart.totalQuantity());
+                });
+    }
+
+    private static Counter saveCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("store.session.saves")
+                .description("Сохранения сессии при работе с корзиной: выполненные и пропущенные без изменений")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+}
@@ -4,79 +4,65 @@ import org.springframework.stereotype.Service;
 import org.springframework.web.server.ServerWebExchange;
 import reactor.core.publisher.Mono;
 
-import java.util.HashMap;
 import java.util.Map;
+import java.util.function.Supplier;
 
+/**
+ * Корзина текущего запроса. Корзина и количество товаров в ней вычисляются один раз на запрос
+ * и запоминаются в атрибутах exchange: контроллер и сервисы, обращающиеся к корзине в одном запросе,
+ * получают один и тот же результат. Изменение корзины сбрасывает запомненные значения.
+ */
 @Service
 public class SessionItemsCountsService {
 
+    private static final String CART_ATTRIBUTE = SessionItemsCountsService.class.getName() + ".cart";
+    private static final String COUNT_ATTRIBUTE = SessionItemsCountsService.class.getName() + ".count";
+
+    private final CartStore cartStore;
+
+    public SessionItemsCountsService(CartStore cartStore) {
+        this.cartStore = cartStore;
+    }
+
     public Mono<Map<Long, Integer>> getCartItems(ServerWebExchange exchange) {
-        return exchange.getSession()
-                .map(session -> {
-                    Map<Long, Integer> items = session.getAttribute("cartItems");
-                    if (items == null) {
-                        items = new HashMap<>();
-                        session.getAttributes().put("cartItems", items);
-                    }
-                    return items;
-                });
+        return memoize(exchange, CART_ATTRIBUTE, () -> cartStore.getCartItems(exchange));
     }
 
     public Mono<Void> clearCartItems(ServerWebExchange exchange) {
-        return exchange.getSession()
-                .flatMap(session -> {
-                    Map<Long, Integer> items = session.getAttribute("cartItems");
-                    if (items != null) {
-                        items.clear();
-                    }
-                    return session.save();
-                });
+        return cartStore.clear(exchange).doOnTerminate(() -> invalidate(exchange));
     }
 
     public Mono<Void> removeItemFromCart(ServerWebExchange exchange, Long itemId) {
-        return exchange.getSession()
-                .flatMap(session -> {
-                    Map<Long, Integer> items = session.getAttribute("cartItems");
-                    if (items != null) {
-                        items.remove(itemId);
-                    }
-                    return session.save();
-                });
+        return cartStore.remove(exchange, itemId).doOnTerminate(() -> invalidate(exchange));
     }
 
     public Mono<Void> updateItemCount(ServerWebExchange exchange, Long itemId, String action) {
-        return exchange.getSession()
-                .flatMap(session -> {
-                    Map<Long, Integer> items = session.getAttribute("cartItems");
-                    if (items == null) {
-                        items = new HashMap<>();
-                        session.getAttributes().put("cartItems", items);
-                    }
-
-                    int current = items.getOrDefault(itemId, 0);
+        Mono<Void> update = switch (action) {
+            case "PLUS" -> cartStore.change(exchange, itemId, 1);
+            case "MINUS" -> cartStore.change(exchange, itemId, -1);
+            case "DELETE" -> cartStore.change(exchange, itemId, 0);
+            default -> Mono.empty();
+        };
+        return update.doOnTerminate(() -> invalidate(exchange));
+    }
 
-                    switch (action) {
-                        case "PLUS" -> items.put(itemId, current + 1);
-                        case "MINUS" -> {
-                            if (current > 0) items.put(itemId, current - 1);
-                        }
-                        case "DELETE" -> items.remove(itemId);
-                    }
+    public Mono<Integer> checkItemsCount(ServerWebExchange exchange) {
+        return memoize(exchange, COUNT_ATTRIBUTE,
+                () -> getCartItems(exchange).flatMap(items -> cartStore.countItems(exchange, items)));
+    }
 
-                    return session.save();
-                });
+    /**
+     * Значение берётся из атрибутов в момент подписки, а не сборки цепочки:
+     * так цепочка вида update.then(getCartItems(...)) увидит корзину уже после изменения
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> Mono<T> memoize(ServerWebExchange exchange, String attribute, Supplier<Mono<T>> loader) {
+        return Mono.defer(() -> (Mono<T>) exchange.getAttributes()
+                .computeIfAbsent(attribute, key -> loader.get().cache()));
     }
 
-    public Mono<Integer> checkItemsCount(ServerWebExchange exchange) {
-        return exchange.getSession()
-                .flatMap(session -> {
-                    Map<Long, Integer> items = session.getAttribute("cartItems");
-                    if (items == null) {
-                        items = new HashMap<>();
-                        session.getAttributes().put("cartItems", items);
-                    }
-                    items.entrySet().removeIf(entry -> entry.getValue() == 0);
-                    return session.save().thenReturn(items.values().stream().mapToInt(value -> value).sum());
-                });
+    private static void invalidate(ServerWebExchange exchange) {
+        exchange.getAttributes().remove(CART_ATTRIBUTE);
+        exchange.getAttributes().remove(COUNT_ATTRIBUTE);
     }
 }
@@ -4,17 +4,29 @@ CREATE TABLE items (
                        title VARCHAR(255) NOT NULL,
                        img_path VARCHAR(500),
                        price DECIMAL(10, 2) NOT NULL,
-                       description TEXT NOT NULL
+                       description TEXT NOT NULL,
+                       title_lower VARCHAR(255) GENERATED ALWAYS AS (LOWER(title))
 );
 
+-- Индексы для сортировки и постраничной (в т.ч. keyset) выборки по цене и названию
+CREATE INDEX idx_items_price ON items (price, id);
+CREATE INDEX idx_items_title_lower ON items (title_lower, id);
+
 -- Таблица заказов
 CREATE TABLE orders (
                         id BIGINT AUTO_INCREMENT PRIMARY KEY,
                         order_number VARCHAR(50) UNIQUE NOT NULL,
                         total_amount DECIMAL(10, 2) NOT NULL,
-                        order_date TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+                        order_date TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    -- Ключ идемпотентности оформления (сессия:ключ клиента): повтор находит уже оформленный заказ
+                        idempotency_key VARCHAR(200) UNIQUE
 );
 
+-- Номера заказов выдаются блоками (hi-lo): одно обращение к последовательности резервирует
+-- INCREMENT BY номеров, значение v означает блок (v - 50, v]. Первый блок начинается после номеров из начальных данных.
+-- Размер блока приложение читает из INFORMATION_SCHEMA, отдельной настройки для него нет
+CREATE SEQUENCE order_number_seq START WITH 55 INCREMENT BY 50;
+
 -- Таблица элементов заказа
 CREATE TABLE order_items (
                              id BIGINT AUTO_INCREMENT PRIMARY KEY,
@@ -0,0 +1,26 @@
+-- Атомарное изменение количества товара в корзине (Redis hash itemId -> qty)
+-- KEYS[1] - ключ корзины, ARGV[1] - id товара, ARGV[2] - изменение (+1/-1, 0 - удалить), ARGV[3] - TTL корзины, с
+-- Количество не уходит ниже нуля; при нуле позиция удаляется. Возвращает новое количество.
+local key = KEYS[1]
+local field = ARGV[1]
+local delta = tonumber(ARGV[2])
+local ttl = tonumber(ARGV[3])
+
+local qty = 0
+if delta == 0 then
+    redis.call('HDEL', key, field)
+else
+    local current = tonumber(redis.call('HGET', key, field) or '0')
+    qty = current + delta
+    if qty <= 0 then
+        qty = 0
+        redis.call('HDEL', key, field)
+    else
+        redis.call('HSET', key, field, qty)
+    end
+end
+
+if ttl > 0 and redis.call('EXISTS', key) == 1 then
+    redis.call('EXPIRE', key, ttl)
+end
+return qty
@@ -0,0 +1,41 @@
+document.addEventListener('DOMContentLoaded', function() {
+    // Автодополнение строки поиска по названиям товаров
+    const input = document.querySelector('input[data-suggest-url]');
+    const datalist = document.getElementById('search-suggestions');
+    if (!input || !datalist) {
+        return;
+    }
+
+    const suggestUrl = input.dataset.suggestUrl;
+    let timer = null;
+    let controller = null;
+
+    input.addEventListener('input', function() {
+        clearTimeout(timer);
+        const query = input.value.trim();
+        if (query.length === 0) {
+            datalist.innerHTML = '';
+            return;
+        }
+
+        // Небольшая задержка, чтобы не слать запрос на каждое нажатие клавиши
+        timer = setTimeout(function() {
+            if (controller) {
+                controller.abort();
+            }
+            controller = new AbortController();
+
+            fetch(suggestUrl + '?q=' + encodeURIComponent(query), {signal: controller.signal})
+                .then(response => response.ok ? response.json() : [])
+                .then(suggestions => {
+                    datalist.innerHTML = '';
+                    suggestions.forEach(suggestion => {
+                        const option = document.createElement('option');
+                        option.value = suggestion.title;
+                        datalist.appendChild(option);
+                    });
+                })
+                .catch(() => {});
+        }, 150);
+    });
+});
@@ -0,0 +1,97 @@
+package org.pl.config;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.pl.dao.Item;
+import org.pl.dto.Cart;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.math.BigDecimal;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Сравнение CompactRedisSerializer с GenericJackson2JsonRedisSerializer: байт на запись
+ * и время кодирования/декодирования одной записи. В обычный прогон тестов не входит,
+ * запуск: mvn test -pl web-store-service -Pbenchmark
+ */
+@Tag("benchmark")
+class CompactRedisSerializerBenchmark {
+
+    private static final int WARMUP = 50_000;
+    private static final int ITERATIONS = 200_000;
+
+    private final RedisSerializer<Object> compact = new CompactRedisSerializer();
+    private final RedisSerializer<Object> json = new GenericJackson2JsonRedisSerializer();
+
+    @Test
+    void item() {
+        compare("Item", this::createItem);
+    }
+
+    @Test
+    void cart() {
+        compare("Cart(20)", this::createCart);
+    }
+
+    private void compare(String name, Supplier<Object> value) {
+        Result jsonResult = measure(json, value.get());
+        Result compactResult = measure(compact, value.get());
+
+        System.out.printf("%s json:    %4d bytes/entry, encode %6d ns/op, decode %6d ns/op%n",
+                name, jsonResult.bytes, jsonResult.encodeNs, jsonResult.decodeNs);
+        System.out.printf("%s compact: %4d bytes/entry, encode %6d ns/op, decode %6d ns/op%n",
+                name, compactResult.bytes, compactResult.encodeNs, compactResult.decodeNs);
+
+        assertThat(compactResult.bytes).isLessThan(jsonResult.bytes);
+    }
+
+    private static Result measure(RedisSerializer<Object> codec, Object value) {
+        byte[] encoded = codec.serialize(value);
+        long sink = 0;
+        for (int i = 0; i < WARMUP; i++) {
+            sink += codec.serialize(value).length;
+            sink += codec.deserialize(encoded) != null ? 1 : 0;
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            sink += codec.serialize(value).length;
+        }
+        long encodeNs = (System.nanoTime() - start) / ITERATIONS;
+
+        start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            sink += codec.deserialize(encoded) != null ? 1 : 0;
+        }
+        long decodeNs = (System.nanoTime() - start) / ITERATIONS;
+
+        // Результат используется, чтобы JIT не выбросил циклы
+        assertThat(sink).isPositive();
+        return new Result(encoded.length, encodeNs, decodeNs);
+    }
+
+    private Item createItem() {
+        Item item = new Item(
+                "Беспроводные наушники",
+                "images/headphones.jpg",
+                new BigDecimal("4999.99"),
+                "Наушники с активным шумоподавлением и временем работы до 30 часов"
+        );
+        item.setId(12345L);
+        return item;
+    }
+
+    private Cart createCart() {
+        Cart cart = new Cart();
+        for (long id = 1; id <= 20; id++) {
+            cart.set(id * 7, (int) (id % 3) + 1);
+        }
+        return cart;
+    }
+
+    private record Result(int bytes, long encodeNs, long decodeNs) {
+    }
+}
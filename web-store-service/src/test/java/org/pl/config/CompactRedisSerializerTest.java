@@ -0,0 +1,107 @@
+package org.pl.config;
+
+import org.junit.jupiter.api.Test;
+import org.pl.dao.Item;
+import org.pl.dto.Cart;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CompactRedisSerializerTest {
+
+    private final CompactRedisSerializer serializer = new CompactRedisSerializer();
+
+    @Test
+    void item_shouldRoundTrip() {
+        Item item = createItem();
+
+        Item restored = (Item) serializer.deserialize(serializer.serialize(item));
+
+        assertThat(restored).usingRecursiveComparison().isEqualTo(item);
+    }
+
+    @Test
+    void itemWithNullFields_shouldRoundTrip() {
+        Item item = new Item();
+        item.setId(42L);
+
+        Item restored = (Item) serializer.deserialize(serializer.serialize(item));
+
+        assertThat(restored).usingRecursiveComparison().isEqualTo(item);
+    }
+
+    @Test
+    void simpleAndFallbackTypes_shouldRoundTrip() {
+        assertThat(serializer.deserialize(serializer.serialize("Смарт-часы"))).isEqualTo("Смарт-часы");
+        assertThat(serializer.deserialize(serializer.serialize(-7L))).isEqualTo(-7L);
+        assertThat(serializer.deserialize(serializer.serialize(Integer.MAX_VALUE))).isEqualTo(Integer.MAX_VALUE);
+        List<String> list = new ArrayList<>(List.of("a", "b"));
+        assertThat(serializer.deserialize(serializer.serialize(list))).isEqualTo(list);
+    }
+
+    @Test
+    void cartMap_shouldRoundTripWithLongKeys() {
+        Map<Long, Integer> cart = new HashMap<>(Map.of(1L, 2, 15L, 1));
+
+        Object restored = serializer.deserialize(serializer.serialize(cart));
+
+        assertThat(restored).isEqualTo(cart);
+        assertThat(serializer.deserialize(serializer.serialize(new HashMap<Long, Integer>()))).isEqualTo(Map.of());
+    }
+
+    @Test
+    void cart_shouldRoundTripSmallerThanPlainMap() {
+        Cart cart = new Cart();
+        Map<Long, Integer> plain = new HashMap<>();
+        for (long id = 1000; id < 1300; id++) {
+            cart.set(id, (int) (id % 5) + 1);
+            plain.put(id, (int) (id % 5) + 1);
+        }
+
+        byte[] compact = serializer.serialize(cart);
+        Object restored = serializer.deserialize(compact);
+
+        assertThat(restored).isInstanceOf(Cart.class).isEqualTo(plain);
+        assertThat(((Cart) restored).totalQuantity()).isEqualTo(cart.totalQuantity());
+        assertThat(compact.length).isLessThan(serializer.serialize(plain).length);
+    }
+
+    @Test
+    void unknownVersion_shouldBeReadAsCacheMiss() {
+        byte[] legacyJson = new GenericJackson2JsonRedisSerializer().serialize(createItem());
+
+        assertThat(serializer.deserialize(legacyJson)).isNull();
+    }
+
+    /**
+     * Компактный формат должен занимать заметно меньше места, чем GenericJackson2JsonRedisSerializer
+     */
+    @Test
+    void compactValue_shouldBeMuchSmallerThanJson() {
+        Item item = createItem();
+        RedisSerializer<Object> json = new GenericJackson2JsonRedisSerializer();
+
+        int jsonBytes = json.serialize(item).length;
+        int compactBytes = serializer.serialize(item).length;
+
+        assertThat(compactBytes).isLessThan(jsonBytes * 3 / 4);
+    }
+
+    private Item createItem() {
+        Item item = new Item(
+                "Беспроводные наушники",
+                "images/headphones.jpg",
+                new BigDecimal("4999.99"),
+                "Наушники с активным шумоподавлением и временем работы до 30 часов"
+        );
+        item.setId(12L);
+        return item;
+    }
+}
@@ -0,0 +1,39 @@
+package org.pl.config;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RedisCachePropertiesTest {
+
+    @Test
+    void jitteredTtl_shouldStayWithinBoundsAndSpreadKeys() {
+        RedisCacheProperties properties = new RedisCacheProperties();
+        properties.setTtl(Map.of(RedisCacheProperties.ITEM, Duration.ofSeconds(30)));
+        properties.setJitter(0.2);
+
+        long distinct = IntStream.range(0, 200)
+                .mapToObj(i -> properties.jitteredTtlFor(RedisCacheProperties.ITEM))
+                .peek(ttl -> assertThat(ttl).isBetween(Duration.ofSeconds(24), Duration.ofSeconds(36)))
+                .distinct()
+                .count();
+
+        assertThat(distinct).isGreaterThan(1);
+        assertThat(properties.ttlFor("unknown")).isEqualTo(Duration.ofSeconds(10));
+    }
+
+    @Test
+    void shouldRefresh_afterConfiguredFractionOfTtl() {
+        RedisCacheProperties properties = new RedisCacheProperties();
+        properties.setDefaultTtl(Duration.ofSeconds(10));
+        properties.setRefreshAhead(0.8);
+
+        assertThat(properties.shouldRefresh(RedisCacheProperties.ITEM, Duration.ofSeconds(5))).isFalse();
+        assertThat(properties.shouldRefresh(RedisCacheProperties.ITEM, Duration.ofMillis(1500))).isTrue();
+        assertThat(properties.shouldRefresh(RedisCacheProperties.ITEM, Duration.ofSeconds(-1))).isFalse();
+    }
+}
@@ -78,6 +78,7 @@ class CartControllerTest extends ControllerIntegrationTest {
                     assertThat(html).contains("<form");
                     assertThat(html).contains("action=\"" + cartAction + "\"");
                     assertThat(html).contains("action=\"" + buyAction + "\"");
+                    assertThat(html).contains("name=\"idempotencyKey\"");
                 });
     }
 
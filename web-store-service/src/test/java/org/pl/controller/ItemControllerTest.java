@@ -2,6 +2,10 @@ package org.pl.controller;
 
 import org.junit.jupiter.api.Test;
 import org.pl.dao.Item;
+import org.pl.dto.ItemCursor;
+import org.pl.dto.ItemSuggestionDto;
+import org.pl.dto.ItemsCursorPage;
+import org.pl.repository.ItemSort;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.http.MediaType;
@@ -15,6 +19,8 @@ import java.util.Map;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 class ItemControllerTest extends ControllerIntegrationTest {
@@ -252,6 +258,57 @@ class ItemControllerTest extends ControllerIntegrationTest {
                 });
     }
 
+    @Test
+    void getItemsSorted_withCursor_shouldUseKeysetPaging() {
+        List<Item> items = createTestItems(7).subList(5, 7);
+        String cursor = ItemCursor.after(ItemSort.PRICE_ASC, createTestItems(5).getLast(), 2).encode();
+
+        var cursorPage = new ItemsCursorPage(
+                List.of(items),
+                2,
+                5,
+                true,
+                false,
+                ItemCursor.before(ItemSort.PRICE_ASC, items.getFirst(), 1).encode(),
+                null
+        );
+
+        when(itemService.getItemsByCursor(any(), eq(5), eq(null))).thenReturn(Mono.just(cursorPage));
+        when(sessionItemsCountsService.getCartItems(any())).thenReturn(Mono.just(Map.of()));
+        when(sessionItemsCountsService.checkItemsCount(any())).thenReturn(Mono.just(0));
+
+        webTestClient.get()
+                .uri("/items?pageSize=5&sort=PRICE_ASC&cursor=" + cursor)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(String.class)
+                .value(html -> {
+                    assertThat(html).contains("Item 6");
+                    assertThat(html).contains("Item 7");
+                    assertThat(html).contains("value=\"" + cursorPage.prevCursor() + "\"");
+                });
+
+        verify(itemService, never()).getItemsSorted(any(), any(), any());
+    }
+
+    @Test
+    void suggest_shouldReturnJsonSuggestions() {
+        when(itemService.suggest("mac", 10)).thenReturn(Mono.just(List.of(
+                new ItemSuggestionDto(1L, "MacBook Pro 16\""),
+                new ItemSuggestionDto(2L, "Mac Mini")
+        )));
+
+        webTestClient.get()
+                .uri("/items/suggest?q=mac")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_JSON)
+                .expectBody()
+                .jsonPath("$.length()").isEqualTo(2)
+                .jsonPath("$[0].id").isEqualTo(1)
+                .jsonPath("$[1].title").isEqualTo("Mac Mini");
+    }
+
     private Item createItem(Long id, String title, String imgPath, String price) {
         Item item = new Item(
                 title,
@@ -275,4 +332,4 @@ class ItemControllerTest extends ControllerIntegrationTest {
         }
         return items;
     }
-}
\ No newline at end of file
+}
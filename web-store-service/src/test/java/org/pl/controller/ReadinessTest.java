@@ -0,0 +1,29 @@
+package org.pl.controller;
+
+import org.junit.jupiter.api.Test;
+import org.pl.service.ItemIdBloomFilter;
+import org.pl.service.ItemSearchIndex;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReadinessTest extends ControllerIntegrationTest {
+
+    @Autowired
+    private ItemSearchIndex itemSearchIndex;
+
+    @Autowired
+    private ItemIdBloomFilter itemIdBloomFilter;
+
+    @Test
+    void readiness_shouldBeReportedWithIndexesAlreadyBuilt() {
+        webTestClient.get().uri("/actuator/health/readiness")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.status").isEqualTo("UP");
+
+        // CatalogWarmup строит их синхронно до объявления готовности
+        assertThat(itemSearchIndex.isReady()).isTrue();
+        assertThat(itemIdBloomFilter.isReady()).isTrue();
+    }
+}
@@ -0,0 +1,80 @@
+package org.pl.dto;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CartTest {
+
+    @Test
+    void set_shouldKeepLinesSortedAndTotalUpToDate() {
+        Cart cart = new Cart(2);
+        cart.set(15L, 1);
+        cart.set(3L, 2);
+        cart.set(7L, 4);
+        cart.set(3L, 1);
+
+        assertThat(cart.lineCount()).isEqualTo(3);
+        assertThat(cart.itemIdAt(0)).isEqualTo(3L);
+        assertThat(cart.itemIdAt(2)).isEqualTo(15L);
+        assertThat(cart.totalQuantity()).isEqualTo(6);
+        assertThat(cart).isEqualTo(Map.of(3L, 1, 7L, 4, 15L, 1));
+    }
+
+    @Test
+    void removeOperations_shouldUpdateTotal() {
+        Cart cart = Cart.copyOf(Map.of(1L, 2, 2L, 0, 3L, 5, 4L, 0));
+
+        assertThat(cart.removeEmptyLines()).isTrue();
+        assertThat(cart.removeEmptyLines()).isFalse();
+        assertThat(cart.keySet()).containsExactly(1L, 3L);
+
+        assertThat(cart.removeLine(1L)).isTrue();
+        assertThat(cart.removeLine(1L)).isFalse();
+        assertThat(cart.totalQuantity()).isEqualTo(5);
+
+        cart.entrySet().removeIf(entry -> entry.getKey() == 3L);
+        assertThat(cart).isEmpty();
+        assertThat(cart.totalQuantity()).isZero();
+    }
+
+    @Test
+    void mapView_shouldBehaveLikeMap() {
+        Cart cart = new Cart();
+        assertThat(cart.put(5L, 2)).isNull();
+        assertThat(cart.put(5L, 3)).isEqualTo(2);
+        assertThat(cart.get(5L)).isEqualTo(3);
+        assertThat(cart.get(6L)).isNull();
+        assertThat(cart.getOrDefault(6L, 0)).isZero();
+        assertThat(cart.get("5")).isNull();
+
+        cart.entrySet().iterator().next().setValue(7);
+        assertThat(cart.quantity(5L)).isEqualTo(7);
+        assertThat(cart.totalQuantity()).isEqualTo(7);
+        assertThat(cart.remove(5L)).isEqualTo(7);
+        assertThat(cart.totalQuantity()).isZero();
+    }
+
+    @Test
+    void javaSerialization_shouldRoundTrip() throws Exception {
+        Cart cart = Cart.copyOf(Map.of(1L, 2, 15L, 1));
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(cart);
+        }
+        Cart restored;
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            restored = (Cart) in.readObject();
+        }
+
+        assertThat(restored).isEqualTo(cart);
+        assertThat(restored.totalQuantity()).isEqualTo(3);
+    }
+}
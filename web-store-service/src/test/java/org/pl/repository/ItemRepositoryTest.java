@@ -8,6 +8,7 @@ import org.springframework.test.context.TestPropertySource;
 import reactor.test.StepVerifier;
 
 import java.math.BigDecimal;
+import java.util.List;
 
 import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
 
@@ -41,5 +42,92 @@ class ItemRepositoryTest {
                 })
                 .verifyComplete();
     }
-}
 
+    @Test
+    void findPage_shouldReturnPageSortedByPriceAsc() {
+        StepVerifier.create(itemRepository.findPage(null, ItemSort.PRICE_ASC, 5, 0).collectList())
+                .assertNext(items -> {
+                    assertThat(items.size()).isEqualTo(5);
+                    for (int i = 1; i < items.size(); i++) {
+                        assertThat(items.get(i - 1).getPrice()).isLessThanOrEqualTo(items.get(i).getPrice());
+                    }
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    void findPage_withTitleAndOffset_shouldReturnSecondMacBookByPriceDesc() {
+        StepVerifier.create(itemRepository.findPage("macbook pro", ItemSort.PRICE_DESC, 1, 1))
+                .assertNext(item -> assertThat(item.getTitle()).isEqualTo("MacBook Pro 16\" M2 Pro"))
+                .verifyComplete();
+    }
+
+    @Test
+    void findPageAfter_shouldContinueFromCursorLikeOffsetPage() {
+        var expected = itemRepository.findPage(null, ItemSort.ALPHA_ASC, 3, 3).collectList().block();
+        var firstPage = itemRepository.findPage(null, ItemSort.ALPHA_ASC, 3, 0).collectList().block();
+        var last = firstPage.getLast();
+
+        StepVerifier.create(itemRepository.findPageAfter(
+                                null, ItemSort.ALPHA_ASC, ItemSort.ALPHA_ASC.keyOf(last), last.getId(), false, 3
+                        )
+                        .map(item -> item.getId())
+                        .collectList())
+                .assertNext(ids -> assertThat(ids).isEqualTo(expected.stream().map(item -> item.getId()).toList()))
+                .verifyComplete();
+    }
+
+    @Test
+    void findPageAfter_backward_shouldReturnPreviousRowsInReverseOrder() {
+        var page = itemRepository.findPage(null, ItemSort.PRICE_DESC, 4, 0).collectList().block();
+        var fourth = page.get(3);
+
+        StepVerifier.create(itemRepository.findPageAfter(
+                                null, ItemSort.PRICE_DESC, ItemSort.PRICE_DESC.keyOf(fourth), fourth.getId(), true, 2
+                        )
+                        .map(item -> item.getId())
+                        .collectList())
+                .assertNext(ids -> assertThat(ids).isEqualTo(java.util.List.of(page.get(2).getId(), page.get(1).getId())))
+                .verifyComplete();
+    }
+
+    @Test
+    void findPageWithTotal_shouldReturnPageAndExactTotalInOneQuery() {
+        StepVerifier.create(itemRepository.findPageWithTotal("macbook pro", ItemSort.PRICE_ASC, 1, 0, null))
+                .assertNext(page -> {
+                    assertThat(page.items().size()).isEqualTo(1);
+                    assertThat(page.items().getFirst().getTitle()).isEqualTo("MacBook Pro 16\" M2 Pro");
+                    assertThat(page.total()).isEqualTo(2L);
+                    assertThat(page.estimated()).isFalse();
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    void findPageWithTotal_withCountCap_shouldReturnEstimatedTotal() {
+        StepVerifier.create(itemRepository.findPageWithTotal("macbook pro", ItemSort.NO, 5, 0, 1))
+                .assertNext(page -> {
+                    assertThat(page.items().size()).isEqualTo(2);
+                    assertThat(page.total()).isEqualTo(1L);
+                    assertThat(page.estimated()).isTrue();
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    void findPageWithTotal_pageOutOfRange_shouldStillReturnTotal() {
+        StepVerifier.create(itemRepository.findPageWithTotal("macbook pro", ItemSort.NO, 5, 10, null))
+                .assertNext(page -> {
+                    assertThat(page.items().isEmpty()).isTrue();
+                    assertThat(page.total()).isEqualTo(2L);
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    void findExistingIds_shouldReturnOnlyKnownIds() {
+        StepVerifier.create(itemRepository.findExistingIds(List.of(1L, 17L, 999L)).collectList())
+                .assertNext(ids -> assertThat(ids.size()).isEqualTo(2))
+                .verifyComplete();
+    }
+}
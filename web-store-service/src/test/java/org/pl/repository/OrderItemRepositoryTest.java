@@ -1,12 +1,15 @@
 package org.pl.repository;
 
 import org.junit.jupiter.api.Test;
+import org.pl.dao.OrderItem;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.data.r2dbc.DataR2dbcTest;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.context.TestPropertySource;
 import reactor.test.StepVerifier;
 
+import java.util.List;
+
 @DataR2dbcTest
 @TestPropertySource(properties = {
         "spring.sql.init.mode=always",
@@ -30,5 +33,26 @@ class OrderItemRepositoryTest {
                 .expectNextMatches(count -> count >= 5)
                 .verifyComplete();
     }
-}
 
+    @Test
+    void findTopOrderedItemIds_shouldOrderByTotalQuantity() {
+        StepVerifier.create(orderItemRepository.findTopOrderedItemIds(2).collectList())
+                .expectNext(List.of(6L, 15L))
+                .verifyComplete();
+    }
+
+    @Test
+    void insertAll_shouldWriteAllRowsInOneStatement() {
+        // Товары 16 и 17 с единичным количеством не меняют порядок в findTopOrderedItemIds
+        List<OrderItem> rows = List.of(new OrderItem(5L, 16L, 1), new OrderItem(5L, 17L, 1));
+
+        StepVerifier.create(orderItemRepository.findByOrderIdWithAssociations(5L).count()
+                        .flatMap(before -> orderItemRepository.insertAll(rows)
+                                .then(orderItemRepository.findByOrderIdWithAssociations(5L).count())
+                                .map(after -> after - before)))
+                .expectNext(2L)
+                .verifyComplete();
+
+        StepVerifier.create(orderItemRepository.insertAll(List.of())).expectNext(0L).verifyComplete();
+    }
+}
@@ -1,12 +1,17 @@
 package org.pl.repository;
 
 import org.junit.jupiter.api.Test;
+import org.pl.dao.Order;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.data.r2dbc.DataR2dbcTest;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.context.TestPropertySource;
 import reactor.test.StepVerifier;
 
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
 @DataR2dbcTest
 @TestPropertySource(properties = {
         "spring.sql.init.mode=always",
@@ -18,10 +23,33 @@ class OrderRepositoryTest {
     private OrderRepository orderRepository;
 
     @Test
-    void findLastOrderNumber_shouldReturnLatestByDate() {
-        StepVerifier.create(orderRepository.findLastOrderNumber())
-                .expectNext("ORD-2024-005")
+    void nextOrderNumberBlock_shouldReserveBlocksAfterSeedData() {
+        StepVerifier.create(orderRepository.nextOrderNumberBlock().concatWith(orderRepository.nextOrderNumberBlock()))
+                .expectNext(55L)
+                .expectNext(105L)
+                .verifyComplete();
+    }
+
+    @Test
+    void findOrderNumberBlockSize_shouldMatchSequenceIncrement() {
+        StepVerifier.create(orderRepository.findOrderNumberBlockSize())
+                .expectNext(50L)
                 .verifyComplete();
     }
-}
 
+    @Test
+    void idempotencyKey_shouldFindOrderAndRejectSecondOrder() {
+        Order first = new Order("ORD-2026-901", new BigDecimal("10.00"), LocalDateTime.of(2020, 1, 1, 0, 0));
+        first.setIdempotencyKey("session:key-1");
+        Order second = new Order("ORD-2026-902", new BigDecimal("10.00"), LocalDateTime.of(2020, 1, 1, 0, 0));
+        second.setIdempotencyKey("session:key-1");
+
+        StepVerifier.create(orderRepository.save(first)
+                        .then(orderRepository.findByIdempotencyKey("session:key-1")))
+                .expectNextMatches(order -> order.getOrderNumber().equals("ORD-2026-901"))
+                .verifyComplete();
+        StepVerifier.create(orderRepository.save(second))
+                .expectError(DataIntegrityViolationException.class)
+                .verify();
+    }
+}
@@ -0,0 +1,271 @@
+package org.pl.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.pl.dao.Item;
+import org.pl.dao.Order;
+import org.pl.dto.Cart;
+import org.pl.exception.BalanceServiceException;
+import org.pl.exception.InsufficientFundsException;
+import org.pl.webstore.client.payment.api.DefaultApi;
+import org.pl.webstore.client.payment.model.BalanceDebitRequest;
+import org.pl.webstore.client.payment.model.BalanceResponse;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.ReactiveValueOperations;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CartServiceTest {
+
+    private ItemService itemService;
+    private OrderService orderService;
+    private OrderItemService orderItemService;
+    private SessionItemsCountsService sessionItemsCountsService;
+    private DefaultApi defaultApi;
+    private CartService cartService;
+    private MockServerWebExchange exchange;
+    private Cart cart;
+
+    @BeforeEach
+    void setUp() {
+        itemService = mock(ItemService.class);
+        orderService = mock(OrderService.class);
+        orderItemService = mock(OrderItemService.class);
+        sessionItemsCountsService = mock(SessionItemsCountsService.class);
+        defaultApi = mock(DefaultApi.class);
+        cartService = new CartService(itemService, orderService, orderItemService,
+                sessionItemsCountsService, defaultApi);
+        exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/cart"));
+        cart = Cart.copyOf(Map.of(1L, 2, 2L, 1));
+
+        when(sessionItemsCountsService.getCartItems(exchange)).thenReturn(Mono.fromSupplier(() -> cart));
+        when(itemService.getItemByIds(anyList())).thenReturn(Flux.defer(() -> Flux.just(
+                item(1L, "100.00"), item(2L, "50.50"))));
+        when(itemService.getCurrentItemsByIds(any())).thenReturn(Flux.defer(() -> Flux.just(
+                item(1L, "100.00"), item(2L, "50.50"))));
+    }
+
+    @Test
+    void itemsAndTotal_shouldShareOneBatchLoad() {
+        StepVerifier.create(Mono.zip(
+                        cartService.getItemsByItemsCounts(exchange),
+                        cartService.getTotalItemsSum(exchange)))
+                .assertNext(tuple -> {
+                    assertThat(tuple.getT1()).extracting(Item::getId).containsExactly(1L, 2L);
+                    assertThat(tuple.getT2()).isEqualByComparingTo("250.50");
+                })
+                .verifyComplete();
+
+        verify(itemService, times(1)).getItemByIds(anyList());
+    }
+
+    @Test
+    void changedCart_shouldRebuildView() {
+        StepVerifier.create(cartService.getTotalItemsSum(exchange))
+                .assertNext(total -> assertThat(total).isEqualByComparingTo("250.50"))
+                .verifyComplete();
+
+        cart.set(2L, 2);
+
+        StepVerifier.create(cartService.getCartView(exchange))
+                .assertNext(view -> {
+                    assertThat(view.total()).isEqualByComparingTo("301.00");
+                    assertThat(view.subtotals().get(2L)).isEqualByComparingTo("101.00");
+                })
+                .verifyComplete();
+
+        verify(itemService, times(2)).getItemByIds(anyList());
+    }
+
+    @Test
+    void createSaveOrders_shouldDebitOnceAndClearCart() {
+        Order order = new Order("ORD-2026-101", new BigDecimal("250.50"), LocalDateTime.now());
+        when(orderService.createOrder(any(), any())).thenReturn(Mono.just(order));
+        when(orderItemService.saveOrder(any(), anyMap())).thenReturn(Mono.empty());
+        when(sessionItemsCountsService.clearCartItems(exchange)).thenReturn(Mono.empty());
+        BalanceResponse balance = new BalanceResponse();
+        balance.setBalance(new BigDecimal("749.50"));
+        when(defaultApi.debitUserBalance(eq(1L), any())).thenReturn(Mono.just(balance));
+
+        StepVerifier.create(cartService.createSaveOrders(exchange))
+                .expectNext(order)
+                .verifyComplete();
+
+        ArgumentCaptor<BalanceDebitRequest> request = ArgumentCaptor.forClass(BalanceDebitRequest.class);
+        verify(defaultApi).debitUserBalance(eq(1L), request.capture());
+        assertThat(request.getValue().getAmount()).isEqualByComparingTo("250.50");
+        verify(defaultApi, never()).getUserBalance(any());
+        verify(defaultApi, never()).updateUserBalance(any(), any());
+        verify(sessionItemsCountsService).clearCartItems(exchange);
+    }
+
+    @Test
+    void createSaveOrders_shouldChargeCurrentPricesNotCachedOnes() {
+        // В кэше старая цена товара 1, в БД она уже поднята до 120
+        when(itemService.getCurrentItemsByIds(any())).thenReturn(Flux.just(
+                item(1L, "120.00"), item(2L, "50.50")));
+        when(orderService.createOrder(any(), any())).thenAnswer(invocation ->
+                Mono.just(new Order("ORD-2026-105", invocation.getArgument(0), LocalDateTime.now())));
+        when(orderItemService.saveOrder(any(), anyMap())).thenReturn(Mono.empty());
+        when(sessionItemsCountsService.clearCartItems(exchange)).thenReturn(Mono.empty());
+        when(defaultApi.debitUserBalance(eq(1L), any())).thenReturn(Mono.just(new BalanceResponse()));
+
+        StepVerifier.create(cartService.createSaveOrders(exchange))
+                .assertNext(order -> assertThat(order.getTotalAmount()).isEqualByComparingTo("290.50"))
+                .verifyComplete();
+
+        ArgumentCaptor<BalanceDebitRequest> request = ArgumentCaptor.forClass(BalanceDebitRequest.class);
+        verify(defaultApi).debitUserBalance(eq(1L), request.capture());
+        assertThat(request.getValue().getAmount()).isEqualByComparingTo("290.50");
+        verify(itemService, never()).getItemByIds(anyList());
+    }
+
+    @Test
+    void createSaveOrders_shouldReportInsufficientFundsOnConflict() {
+        Order order = new Order("ORD-2026-102", new BigDecimal("250.50"), LocalDateTime.now());
+        when(orderService.createOrder(any(), any())).thenReturn(Mono.just(order));
+        when(orderItemService.saveOrder(any(), anyMap())).thenReturn(Mono.empty());
+        when(defaultApi.debitUserBalance(eq(1L), any())).thenReturn(Mono.error(
+                WebClientResponseException.create(409, "Conflict", null, null, null)));
+
+        StepVerifier.create(cartService.createSaveOrders(exchange))
+                .expectErrorSatisfies(error -> {
+                    assertThat(error).isInstanceOf(InsufficientFundsException.class);
+                    assertThat(((InsufficientFundsException) error).getRequiredAmount()).isEqualByComparingTo("250.50");
+                })
+                .verify();
+
+        verify(sessionItemsCountsService, never()).clearCartItems(any());
+    }
+
+    @Test
+    void createSaveOrders_shouldReportBalanceServiceFailure() {
+        Order order = new Order("ORD-2026-103", new BigDecimal("250.50"), LocalDateTime.now());
+        when(orderService.createOrder(any(), any())).thenReturn(Mono.just(order));
+        when(orderItemService.saveOrder(any(), anyMap())).thenReturn(Mono.empty());
+        when(defaultApi.debitUserBalance(eq(1L), any())).thenReturn(Mono.error(
+                WebClientResponseException.create(500, "Internal Server Error", null, null, null)));
+
+        StepVerifier.create(cartService.createSaveOrders(exchange))
+                .expectError(BalanceServiceException.class)
+                .verify();
+    }
+
+    @Test
+    void redisDown_sameKeyTwice_shouldReturnOriginalOrderWithoutSecondDebit() {
+        CheckoutIdempotencyService idempotency = redisDownIdempotency();
+        MockServerWebExchange buy = MockServerWebExchange.from(MockServerHttpRequest.post("/buy")
+                .header(CheckoutIdempotencyService.HEADER, "key-1"));
+        when(sessionItemsCountsService.getCartItems(buy)).thenReturn(Mono.fromSupplier(() -> cart));
+        when(sessionItemsCountsService.clearCartItems(buy)).thenReturn(Mono.empty());
+        // Заказы с ключом идемпотентности, как их хранит таблица orders
+        Map<String, Order> ordersByKey = new HashMap<>();
+        when(orderService.findByIdempotencyKey(any())).thenAnswer(invocation ->
+                Mono.justOrEmpty(ordersByKey.get(invocation.<String>getArgument(0))));
+        when(orderService.createOrder(any(), any())).thenAnswer(invocation -> {
+            Order order = new Order("ORD-2026-104", invocation.getArgument(0), LocalDateTime.now());
+            order.setId(104L);
+            ordersByKey.put(invocation.getArgument(1), order);
+            return Mono.just(order);
+        });
+        when(orderItemService.saveOrder(any(), anyMap())).thenReturn(Mono.empty());
+        when(defaultApi.debitUserBalance(eq(1L), any())).thenReturn(Mono.just(new BalanceResponse()));
+
+        Order first = idempotency.execute(buy, () -> cartService.createSaveOrders(buy)).block();
+        // Повтор с тем же ключом при недоступном Redis находит заказ в БД
+        StepVerifier.create(idempotency.execute(buy, () -> cartService.createSaveOrders(buy)))
+                .expectNext(first)
+                .verifyComplete();
+
+        verify(orderService, times(1)).createOrder(any(), any());
+        verify(defaultApi, times(1)).debitUserBalance(eq(1L), any());
+    }
+
+    @Test
+    void replayedDebit_shouldCompleteOrderWithoutError() {
+        CheckoutIdempotencyService idempotency = redisDownIdempotency();
+        MockServerWebExchange buy = MockServerWebExchange.from(MockServerHttpRequest.post("/buy")
+                .header(CheckoutIdempotencyService.HEADER, "key-2"));
+        when(sessionItemsCountsService.getCartItems(buy)).thenReturn(Mono.fromSupplier(() -> cart));
+        when(sessionItemsCountsService.clearCartItems(buy)).thenReturn(Mono.empty());
+        when(orderService.findByIdempotencyKey(any())).thenReturn(Mono.empty());
+        Order order = new Order("ORD-2026-106", new BigDecimal("250.50"), LocalDateTime.now());
+        when(orderService.createOrder(any(), any())).thenReturn(Mono.just(order));
+        when(orderItemService.saveOrder(any(), anyMap())).thenReturn(Mono.empty());
+        // Предыдущая попытка списала деньги и откатилась: сервис платежей отвечает replayed
+        BalanceResponse replayed = new BalanceResponse();
+        replayed.setReplayed(true);
+        when(defaultApi.debitUserBalance(eq(1L), any())).thenReturn(Mono.just(replayed));
+
+        StepVerifier.create(idempotency.execute(buy, () -> cartService.createSaveOrders(buy)))
+                .expectNext(order)
+                .verifyComplete();
+
+        verify(sessionItemsCountsService).clearCartItems(buy);
+    }
+
+    @Test
+    void concurrentAttemptWithSameKey_shouldResolveToStoredOrder() {
+        CheckoutIdempotencyService idempotency = redisDownIdempotency();
+        MockServerWebExchange buy = MockServerWebExchange.from(MockServerHttpRequest.post("/buy")
+                .header(CheckoutIdempotencyService.HEADER, "key-3"));
+        when(sessionItemsCountsService.getCartItems(buy)).thenReturn(Mono.fromSupplier(() -> cart));
+        Order stored = new Order("ORD-2026-107", new BigDecimal("250.50"), LocalDateTime.now());
+        // Параллельная попытка сохранила заказ с этим ключом между проверкой и INSERT
+        when(orderService.findByIdempotencyKey(any()))
+                .thenReturn(Mono.empty())
+                .thenReturn(Mono.just(stored));
+        when(orderService.createOrder(any(), any()))
+                .thenReturn(Mono.error(new DuplicateKeyException("orders.idempotency_key")));
+
+        StepVerifier.create(idempotency.execute(buy, () -> cartService.createSaveOrders(buy)))
+                .expectNext(stored)
+                .verifyComplete();
+
+        verify(defaultApi, never()).debitUserBalance(any(), any());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static CheckoutIdempotencyService redisDownIdempotency() {
+        ReactiveStringRedisTemplate redisTemplate = mock(ReactiveStringRedisTemplate.class);
+        ReactiveValueOperations<String, String> valueOps = mock(ReactiveValueOperations.class);
+        when(redisTemplate.opsForValue()).thenReturn(valueOps);
+        when(valueOps.setIfAbsent(anyString(), anyString(), any(Duration.class)))
+                .thenReturn(Mono.error(new IllegalStateException("connection refused")));
+        return new CheckoutIdempotencyService(redisTemplate,
+                new SimpleMeterRegistry(), true, Duration.ofHours(24), Duration.ofSeconds(30), Duration.ofMillis(300));
+    }
+
+    private static Item item(Long id, String price) {
+        Item item = new Item();
+        item.setId(id);
+        item.setTitle("Товар " + id);
+        item.setPrice(new BigDecimal(price));
+        return item;
+    }
+}
@@ -0,0 +1,55 @@
+package org.pl.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.pl.dao.Item;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CatalogSnapshotTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void writeThenRead_shouldRestoreCatalog() {
+        CatalogSnapshot snapshot = new CatalogSnapshot(tempDir.resolve("catalog.bin").toString());
+        List<Item> items = List.of(createItem(1L, "Ноутбук"), createItem(2L, "Мышь"));
+
+        snapshot.write(items);
+
+        assertThat(snapshot.read()).usingRecursiveFieldByFieldElementComparator().containsExactlyElementsOf(items);
+    }
+
+    @Test
+    void missingOrCorruptedFile_shouldReadAsEmpty() throws IOException {
+        Path file = tempDir.resolve("catalog.bin");
+        CatalogSnapshot snapshot = new CatalogSnapshot(file.toString());
+        assertThat(snapshot.read()).isEmpty();
+
+        Files.write(file, new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9, 10});
+        assertThat(snapshot.read()).isEmpty();
+    }
+
+    @Test
+    void emptyPath_shouldDisableSnapshot() {
+        CatalogSnapshot snapshot = new CatalogSnapshot("");
+
+        snapshot.write(List.of(createItem(1L, "Ноутбук")));
+
+        assertThat(snapshot.isEnabled()).isFalse();
+        assertThat(snapshot.read()).isEmpty();
+    }
+
+    private Item createItem(Long id, String title) {
+        Item item = new Item(title, "img.jpg", new BigDecimal("199.90"), "desc");
+        item.setId(id);
+        return item;
+    }
+}
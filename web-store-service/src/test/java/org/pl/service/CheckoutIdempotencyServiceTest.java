@@ -0,0 +1,158 @@
+package org.pl.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.pl.dao.Order;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.ReactiveValueOperations;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class CheckoutIdempotencyServiceTest {
+
+    private ReactiveStringRedisTemplate redisTemplate;
+    private ReactiveValueOperations<String, String> valueOps;
+    private CheckoutIdempotencyService service;
+    private Order order;
+    private AtomicInteger checkouts;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        redisTemplate = mock(ReactiveStringRedisTemplate.class);
+        valueOps = mock(ReactiveValueOperations.class);
+        when(redisTemplate.opsForValue()).thenReturn(valueOps);
+        service = new CheckoutIdempotencyService(redisTemplate, new SimpleMeterRegistry(), true,
+                Duration.ofHours(24), Duration.ofSeconds(30), Duration.ofMillis(300));
+
+        order = new Order("ORD-2026-101", new BigDecimal("250.50"), LocalDateTime.of(2026, 1, 15, 10, 30));
+        order.setId(101L);
+        checkouts = new AtomicInteger();
+    }
+
+    @Test
+    void withoutKey_shouldCheckoutWithoutRedis() {
+        StepVerifier.create(service.execute(exchange(null), this::checkout))
+                .expectNext(order)
+                .verifyComplete();
+
+        assertThat(checkouts).hasValue(1);
+        verifyNoInteractions(redisTemplate);
+    }
+
+    @Test
+    void firstRequest_shouldCheckoutAndStoreResult() {
+        when(valueOps.setIfAbsent(anyString(), eq("pending"), any(Duration.class))).thenReturn(Mono.just(true));
+        when(valueOps.set(anyString(), anyString(), any(Duration.class))).thenReturn(Mono.just(true));
+        MockServerWebExchange exchange = exchange("key-1");
+
+        StepVerifier.create(service.execute(exchange, this::checkout))
+                .expectNext(order)
+                .verifyComplete();
+
+        String sessionId = exchange.getSession().block().getId();
+        assertThat(CheckoutIdempotencyService.keyOf(exchange)).isEqualTo(sessionId + ":key-1");
+        verify(valueOps).set(eq("checkout:" + sessionId + ":key-1"), startsWith("done|101|ORD-2026-101"),
+                eq(Duration.ofHours(24)));
+        assertThat(checkouts).hasValue(1);
+    }
+
+    @Test
+    void replay_shouldReturnStoredOrderWithoutCheckout() {
+        when(valueOps.setIfAbsent(anyString(), eq("pending"), any(Duration.class))).thenReturn(Mono.just(false));
+        when(valueOps.get(anyString())).thenReturn(Mono.just(CheckoutIdempotencyService.encode(order)));
+
+        StepVerifier.create(service.execute(exchange("key-1"), this::checkout))
+                .assertNext(replayed -> assertThat(replayed).usingRecursiveComparison().isEqualTo(order))
+                .verifyComplete();
+
+        assertThat(checkouts).hasValue(0);
+    }
+
+    @Test
+    void concurrentRequest_shouldFailWhenFirstStillRunning() {
+        when(valueOps.setIfAbsent(anyString(), eq("pending"), any(Duration.class))).thenReturn(Mono.just(false));
+        when(valueOps.get(anyString())).thenReturn(Mono.just("pending"));
+
+        StepVerifier.create(service.execute(exchange("key-1"), this::checkout))
+                .expectErrorMessage("Ошибка создания заказа: заказ уже оформляется")
+                .verify();
+
+        assertThat(checkouts).hasValue(0);
+    }
+
+    @Test
+    void failedCheckout_shouldReleaseKey() {
+        when(valueOps.setIfAbsent(anyString(), eq("pending"), any(Duration.class))).thenReturn(Mono.just(true));
+        when(redisTemplate.delete(anyString())).thenReturn(Mono.just(1L));
+
+        StepVerifier.create(service.execute(exchange("key-1"), () -> Mono.error(new IllegalStateException("boom"))))
+                .expectError(IllegalStateException.class)
+                .verify();
+
+        verify(redisTemplate).delete(startsWith("checkout:"));
+        verify(valueOps, never()).set(anyString(), anyString(), any(Duration.class));
+    }
+
+    @Test
+    void redisUnavailable_shouldStillCheckoutOnce() {
+        when(valueOps.setIfAbsent(anyString(), eq("pending"), any(Duration.class)))
+                .thenReturn(Mono.error(new IllegalStateException("connection refused")));
+
+        StepVerifier.create(service.execute(exchange("key-1"), this::checkout))
+                .expectNext(order)
+                .verifyComplete();
+
+        assertThat(checkouts).hasValue(1);
+    }
+
+    @Test
+    void formField_shouldBeUsedAsKey() {
+        when(valueOps.setIfAbsent(anyString(), eq("pending"), any(Duration.class))).thenReturn(Mono.just(true));
+        when(valueOps.set(anyString(), anyString(), any(Duration.class))).thenReturn(Mono.just(true));
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.post("/buy")
+                .contentType(MediaType.APPLICATION_FORM_URLENCODED)
+                .body("idempotencyKey=form-token"));
+
+        StepVerifier.create(service.execute(exchange, this::checkout))
+                .expectNext(order)
+                .verifyComplete();
+
+        assertThat(CheckoutIdempotencyService.keyOf(exchange)).endsWith(":form-token");
+    }
+
+    private Mono<Order> checkout() {
+        return Mono.fromSupplier(() -> {
+            checkouts.incrementAndGet();
+            return order;
+        });
+    }
+
+    private static MockServerWebExchange exchange(String key) {
+        MockServerHttpRequest.BaseBuilder<?> request = MockServerHttpRequest.post("/buy");
+        if (key != null) {
+            request.header(CheckoutIdempotencyService.HEADER, key);
+        }
+        return MockServerWebExchange.from(request);
+    }
+}
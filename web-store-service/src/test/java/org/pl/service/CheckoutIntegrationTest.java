@@ -0,0 +1,111 @@
+package org.pl.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.pl.dao.Order;
+import org.pl.dto.Cart;
+import org.pl.repository.OrderRepository;
+import org.pl.webstore.client.payment.api.DefaultApi;
+import org.pl.webstore.client.payment.model.BalanceDebitRequest;
+import org.pl.webstore.client.payment.model.BalanceResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Повторное оформление с тем же ключом на настоящей БД: откат после списания и потерянный ответ
+ */
+@SpringBootTest(properties = {
+        "store.session.store=memory",
+        "spring.r2dbc.url=r2dbc:h2:mem:///checkout_db?options=DB_CLOSE_DELAY=-1"
+})
+class CheckoutIntegrationTest {
+
+    @Autowired
+    private CartService cartService;
+
+    @Autowired
+    private CheckoutIdempotencyService checkoutIdempotencyService;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @MockitoBean
+    private SessionItemsCountsService sessionItemsCountsService;
+
+    @MockitoBean
+    private DefaultApi defaultApi;
+
+    // Ключи, по которым сервис платежей уже списал деньги
+    private final Set<String> debitedKeys = ConcurrentHashMap.newKeySet();
+
+    @BeforeEach
+    void setUp() {
+        when(sessionItemsCountsService.getCartItems(any())).thenReturn(Mono.fromSupplier(() -> Cart.copyOf(Map.of(1L, 1))));
+        when(defaultApi.debitUserBalance(eq(1L), any())).thenAnswer(invocation -> {
+            BalanceDebitRequest request = invocation.getArgument(1);
+            BalanceResponse response = new BalanceResponse();
+            response.setBalance(new BigDecimal("1000.00"));
+            response.setReplayed(!debitedKeys.add(request.getIdempotencyKey()));
+            return Mono.just(response);
+        });
+    }
+
+    @Test
+    void debitSucceededButTransactionRolledBack_retryShouldCompleteOrder() {
+        MockServerWebExchange buy = buyRequest("rollback-key");
+        // После списания падает последний шаг транзакции - заказ откатывается, деньги уже списаны
+        when(sessionItemsCountsService.clearCartItems(buy))
+                .thenReturn(Mono.error(new IllegalStateException("session store down")))
+                .thenReturn(Mono.empty());
+        long ordersBefore = orderRepository.count().block();
+
+        StepVerifier.create(checkoutIdempotencyService.execute(buy, () -> cartService.createSaveOrders(buy)))
+                .expectError()
+                .verify();
+        assertThat(orderRepository.count().block()).isEqualTo(ordersBefore);
+
+        Order retried = checkoutIdempotencyService.execute(buy, () -> cartService.createSaveOrders(buy)).block();
+
+        assertThat(retried.getIdempotencyKey()).endsWith(":rollback-key");
+        assertThat(orderRepository.count().block()).isEqualTo(ordersBefore + 1);
+        assertThat(debitedKeys).containsExactly(retried.getIdempotencyKey());
+        verify(defaultApi, times(2)).debitUserBalance(eq(1L), any());
+    }
+
+    @Test
+    void orderCommittedButResultLost_retryShouldReturnSameOrder() {
+        MockServerWebExchange buy = buyRequest("committed-key");
+        when(sessionItemsCountsService.clearCartItems(buy)).thenReturn(Mono.empty());
+        long ordersBefore = orderRepository.count().block();
+
+        Order first = checkoutIdempotencyService.execute(buy, () -> cartService.createSaveOrders(buy)).block();
+        Order retried = checkoutIdempotencyService.execute(buy, () -> cartService.createSaveOrders(buy)).block();
+
+        assertThat(retried.getId()).isEqualTo(first.getId());
+        assertThat(retried.getOrderNumber()).isEqualTo(first.getOrderNumber());
+        assertThat(orderRepository.count().block()).isEqualTo(ordersBefore + 1);
+        verify(defaultApi, times(1)).debitUserBalance(eq(1L), any());
+    }
+
+    private static MockServerWebExchange buyRequest(String key) {
+        return MockServerWebExchange.from(MockServerHttpRequest.post("/buy")
+                .header(CheckoutIdempotencyService.HEADER, key));
+    }
+}
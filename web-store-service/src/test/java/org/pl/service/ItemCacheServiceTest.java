@@ -0,0 +1,207 @@
+package org.pl.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.pl.config.RedisCacheProperties;
+import org.pl.dao.Item;
+import org.pl.repository.ItemRepository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class ItemCacheServiceTest {
+
+    private RedisCacheItemService redisCacheItemService;
+    private ItemRepository itemRepository;
+    private SimpleMeterRegistry meterRegistry;
+    private ItemIdBloomFilter itemIdBloomFilter;
+    private ItemCacheService itemCacheService;
+
+    @BeforeEach
+    void setUp() {
+        redisCacheItemService = mock(RedisCacheItemService.class);
+        itemRepository = mock(ItemRepository.class);
+        meterRegistry = new SimpleMeterRegistry();
+        RedisCacheProperties cacheProperties = new RedisCacheProperties();
+        cacheProperties.setDefaultTtl(Duration.ofSeconds(10));
+        cacheProperties.setRefreshAhead(0.8);
+        itemIdBloomFilter = new ItemIdBloomFilter(itemRepository, meterRegistry, true, 1000, 0.01);
+        itemCacheService = new ItemCacheService(
+                redisCacheItemService, itemRepository, cacheProperties, itemIdBloomFilter,
+                meterRegistry, 2, 100, Duration.ofMinutes(1)
+        );
+        when(redisCacheItemService.saveItemToCache(any())).thenReturn(Mono.just(true));
+        when(redisCacheItemService.saveItemsToCache(any())).thenReturn(Mono.just(0L));
+        when(redisCacheItemService.isMarkedMissing(any())).thenReturn(Mono.just(false));
+        when(redisCacheItemService.markMissing(any())).thenReturn(Mono.just(true));
+    }
+
+    @Test
+    void getItem_concurrentMisses_shouldShareOneLoad() {
+        Item item = createItem(7L);
+        Sinks.One<Item> source = Sinks.one();
+        AtomicInteger loads = new AtomicInteger();
+        when(redisCacheItemService.getCachedItem(7L)).thenReturn(Mono.empty());
+        when(itemRepository.findById(7L)).thenReturn(Mono.defer(() -> {
+            loads.incrementAndGet();
+            return source.asMono();
+        }));
+
+        Mono<Item> first = itemCacheService.getItem(7L);
+        Mono<Item> second = itemCacheService.getItem(7L);
+
+        StepVerifier.create(Mono.zip(first, second))
+                .then(() -> source.tryEmitValue(item))
+                .assertNext(tuple -> {
+                    assertThat(tuple.getT1()).isSameAs(item);
+                    assertThat(tuple.getT2()).isSameAs(item);
+                })
+                .verifyComplete();
+
+        assertThat(loads.get()).isEqualTo(1);
+        assertThat(meterRegistry.get("store.cache.item.coalesced").counter().count()).isEqualTo(1.0);
+        verify(redisCacheItemService, times(1)).saveItemToCache(item);
+    }
+
+    @Test
+    void getItem_afterLoad_shouldBeServedFromLocalCache() {
+        Item item = createItem(3L);
+        when(redisCacheItemService.getCachedItem(3L)).thenReturn(Mono.just(fresh(item)));
+
+        StepVerifier.create(itemCacheService.getItem(3L)).expectNext(item).verifyComplete();
+        StepVerifier.create(itemCacheService.getItem(3L)).expectNext(item).verifyComplete();
+
+        verify(redisCacheItemService, times(1)).getCachedItem(3L);
+        assertThat(meterRegistry.get("store.cache.item.requests").tag("level", "l1").tag("result", "hit")
+                .counter().count()).isEqualTo(1.0);
+        assertThat(meterRegistry.get("store.cache.item.requests").tag("level", "l2").tag("result", "hit")
+                .counter().count()).isEqualTo(1.0);
+    }
+
+    @Test
+    void getRequiredItem_onRedisHit_shouldNotTouchDatabase() {
+        Item item = createItem(5L);
+        when(redisCacheItemService.getCachedItem(5L)).thenReturn(Mono.just(fresh(item)));
+
+        StepVerifier.create(itemCacheService.getRequiredItem(5L)).expectNext(item).verifyComplete();
+        StepVerifier.create(itemCacheService.exists(5L)).expectNext(true).verifyComplete();
+
+        verifyNoInteractions(itemRepository);
+    }
+
+    @Test
+    void getRequiredItem_whenItemMissing_shouldFail() {
+        when(redisCacheItemService.getCachedItem(404L)).thenReturn(Mono.empty());
+        when(itemRepository.findById(404L)).thenReturn(Mono.empty());
+
+        StepVerifier.create(itemCacheService.getRequiredItem(404L))
+                .expectErrorMessage("Item not found")
+                .verify();
+    }
+
+    @Test
+    void getItems_shouldLoadOnlyCacheMissesWithBatchedInQueries() {
+        when(redisCacheItemService.getItemsFromCache(List.of(1L, 2L, 3L, 4L, 5L)))
+                .thenReturn(Mono.just(Map.of(1L, createItem(1L), 4L, createItem(4L))));
+        when(itemRepository.findAllById(List.of(2L, 3L)))
+                .thenReturn(Flux.just(createItem(2L), createItem(3L)));
+        when(itemRepository.findAllById(List.of(5L)))
+                .thenReturn(Flux.just(createItem(5L)));
+
+        StepVerifier.create(itemCacheService.getItems(List.of(1L, 2L, 3L, 2L, 4L, 5L)).collectMap(Item::getId))
+                .expectNextMatches(items -> items.keySet().equals(Set.of(1L, 2L, 3L, 4L, 5L)))
+                .verifyComplete();
+
+        verify(itemRepository, never()).findById(anyLong());
+        // Промахи записываются в Redis одной пачкой, уже закэшированные товары не перезаписываются
+        verify(redisCacheItemService, times(1)).saveItemsToCache(argThat(items ->
+                items.stream().map(Item::getId).collect(Collectors.toSet()).equals(Set.of(2L, 3L, 5L))));
+        verify(redisCacheItemService, never()).saveItemToCache(any());
+
+        // Повторный запрос целиком обслуживается локальным кэшем
+        StepVerifier.create(itemCacheService.getItems(List.of(1L, 5L)).count())
+                .expectNext(2L)
+                .verifyComplete();
+        verify(redisCacheItemService, times(1)).getItemsFromCache(any());
+    }
+
+    @Test
+    void getItem_nearExpiry_shouldServeCachedValueAndRefreshInBackground() {
+        Item cached = createItem(9L);
+        Item reloaded = createItem(9L);
+        when(redisCacheItemService.getCachedItem(9L))
+                .thenReturn(Mono.just(new RedisCacheItemService.CachedItem(cached, Duration.ofSeconds(1))));
+        when(itemRepository.findById(9L)).thenReturn(Mono.just(reloaded));
+
+        StepVerifier.create(itemCacheService.getItem(9L)).expectNext(cached).verifyComplete();
+
+        verify(itemRepository, times(1)).findById(9L);
+        verify(redisCacheItemService, times(1)).saveItemToCache(reloaded);
+        assertThat(meterRegistry.get("store.cache.item.loads").tag("mode", "refresh-ahead")
+                .counter().count()).isEqualTo(1.0);
+        assertThat(meterRegistry.get("store.cache.item.loads").tag("mode", "sync-miss")
+                .counter().count()).isEqualTo(0.0);
+    }
+
+    @Test
+    void getItem_unknownId_shouldBeRejectedByBloomFilterWithoutAnyLookup() {
+        itemIdBloomFilter.build(List.of(1L, 2L, 3L));
+
+        StepVerifier.create(itemCacheService.getItem(999_999L)).verifyComplete();
+
+        verifyNoInteractions(itemRepository);
+        verify(redisCacheItemService, never()).getCachedItem(any());
+        assertThat(meterRegistry.get("store.cache.item.bloom").tag("result", "rejected")
+                .counter().count()).isEqualTo(1.0);
+    }
+
+    @Test
+    void getItem_confirmedMiss_shouldBeCachedNegatively() {
+        when(redisCacheItemService.getCachedItem(404L)).thenReturn(Mono.empty());
+        when(itemRepository.findById(404L)).thenReturn(Mono.empty());
+
+        StepVerifier.create(itemCacheService.getItem(404L)).verifyComplete();
+        verify(redisCacheItemService).markMissing(404L);
+
+        // Следующий запрос отвечает негативный кэш, БД не трогаем
+        when(redisCacheItemService.isMarkedMissing(404L)).thenReturn(Mono.just(true));
+        StepVerifier.create(itemCacheService.getItem(404L)).verifyComplete();
+
+        verify(itemRepository, times(1)).findById(404L);
+        assertThat(meterRegistry.get("store.cache.item.negative").tag("result", "stored")
+                .counter().count()).isEqualTo(1.0);
+        assertThat(meterRegistry.get("store.cache.item.negative").tag("result", "hit")
+                .counter().count()).isEqualTo(1.0);
+    }
+
+    private static RedisCacheItemService.CachedItem fresh(Item item) {
+        return new RedisCacheItemService.CachedItem(item, Duration.ofSeconds(10));
+    }
+
+    private Item createItem(Long id) {
+        Item item = new Item("Item " + id, "img.jpg", BigDecimal.TEN, "desc");
+        item.setId(id);
+        return item;
+    }
+}
@@ -0,0 +1,119 @@
+package org.pl.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.pl.dao.Item;
+import org.pl.event.ItemChangedEvent;
+import org.pl.repository.ItemRepository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ItemIdBloomFilterTest {
+
+    private final ItemIdBloomFilter filter = new ItemIdBloomFilter(
+            mock(ItemRepository.class), new SimpleMeterRegistry(), true, 10_000, 0.01
+    );
+
+    @Test
+    void beforeBuild_shouldPassEveryId() {
+        assertThat(filter.isReady()).isFalse();
+        assertThat(filter.mightContain(42L)).isTrue();
+    }
+
+    @Test
+    void knownIds_shouldAlwaysPass_andUnknownMostlyRejected() {
+        filter.build(LongStream.rangeClosed(1, 10_000).boxed().toList());
+
+        assertThat(LongStream.rangeClosed(1, 10_000).allMatch(filter::mightContain)).isTrue();
+
+        long falsePositives = LongStream.rangeClosed(1_000_001, 1_100_000)
+                .filter(filter::mightContain)
+                .count();
+        assertThat(falsePositives).isLessThan(2_000);
+    }
+
+    @Test
+    void savedItem_shouldBeAddedToFilter() {
+        filter.build(List.of(1L, 2L));
+        assertThat(filter.mightContain(777L)).isFalse();
+
+        filter.onItemChanged(ItemChangedEvent.deleted(777L));
+        assertThat(filter.mightContain(777L)).isFalse();
+
+        Item item = new Item();
+        item.setId(777L);
+        filter.onItemChanged(ItemChangedEvent.saved(item));
+        assertThat(filter.mightContain(777L)).isTrue();
+    }
+
+    @Test
+    void putDuringRebuild_shouldSurviveSwap() {
+        ItemRepository itemRepository = mock(ItemRepository.class);
+        Sinks.Many<Long> ids = Sinks.many().unicast().onBackpressureBuffer();
+        when(itemRepository.findAllIds()).thenReturn(ids.asFlux());
+        ItemIdBloomFilter rebuilt = new ItemIdBloomFilter(itemRepository, new SimpleMeterRegistry(), true, 10_000, 0.01);
+        rebuilt.build(List.of(1L, 2L));
+
+        Mono<Integer> rebuild = rebuilt.rebuild().cache();
+        rebuild.subscribe();
+        // id из БД уже прочитаны (777 там ещё нет), товар сохраняется до замены массива
+        ids.tryEmitNext(1L);
+        ids.tryEmitNext(2L);
+        rebuilt.put(777L);
+        ids.tryEmitComplete();
+
+        assertThat(rebuild.block()).isEqualTo(2);
+        assertThat(rebuilt.mightContain(777L)).isTrue();
+    }
+
+    @Test
+    void concurrentPutsAndRebuilds_shouldNeverLoseId() throws Exception {
+        ItemRepository itemRepository = mock(ItemRepository.class);
+        // Товар сначала попадает в БД, затем в фильтр - как при сохранении
+        Set<Long> database = ConcurrentHashMap.newKeySet();
+        LongStream.rangeClosed(1, 1_000).forEach(database::add);
+        when(itemRepository.findAllIds()).thenAnswer(invocation -> Flux.fromIterable(List.copyOf(database)));
+        ItemIdBloomFilter rebuilt = new ItemIdBloomFilter(itemRepository, new SimpleMeterRegistry(), true, 10_000, 0.01);
+        rebuilt.rebuild().block();
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> writers = new ArrayList<>();
+            for (int thread = 0; thread < 4; thread++) {
+                long from = 1_000_000L * (thread + 1);
+                writers.add(executor.submit(() -> LongStream.range(from, from + 2_000).forEach(id -> {
+                    database.add(id);
+                    rebuilt.put(id);
+                })));
+            }
+            for (int i = 0; i < 50; i++) {
+                rebuilt.rebuild().block();
+            }
+            for (Future<?> writer : writers) {
+                writer.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        for (int thread = 0; thread < 4; thread++) {
+            long from = 1_000_000L * (thread + 1);
+            assertThat(LongStream.range(from, from + 2_000).allMatch(rebuilt::mightContain)).isTrue();
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package org.pl.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.pl.dao.Item;
+import org.pl.event.ItemChangedEvent;
+import org.pl.repository.ItemRepository;
+import org.pl.repository.ItemSort;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ItemInvalidationBusTest {
+
+    private ReactiveRedisTemplate<String, Object> reactiveRedisTemplate;
+    private RedisCacheItemService redisCacheItemService;
+    private ItemCacheService itemCacheService;
+    private ItemRepository itemRepository;
+    private ItemSearchIndex itemSearchIndex;
+    private ItemInvalidationBus bus;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        reactiveRedisTemplate = mock(ReactiveRedisTemplate.class);
+        redisCacheItemService = mock(RedisCacheItemService.class);
+        itemCacheService = mock(ItemCacheService.class);
+        itemRepository = mock(ItemRepository.class);
+        itemSearchIndex = new ItemSearchIndex(itemRepository, true, false);
+        when(reactiveRedisTemplate.convertAndSend(anyString(), any())).thenReturn(Mono.just(1L));
+        when(redisCacheItemService.evictItems(any())).thenReturn(Mono.just(0L));
+        bus = new ItemInvalidationBus(
+                reactiveRedisTemplate, redisCacheItemService, itemCacheService, mock(ItemIdBloomFilter.class),
+                mock(CatalogPageCache.class), itemRepository, itemSearchIndex,
+                true, false, 500, Duration.ofMillis(50)
+        );
+    }
+
+    @AfterEach
+    void tearDown() {
+        bus.shutdown();
+    }
+
+    @Test
+    void bulkChange_shouldBeCoalescedIntoFewMessages() {
+        // 2000 изменений по 1000 товарам: каждый товар изменён дважды
+        LongStream.rangeClosed(1, 2000).forEach(i -> bus.onItemChanged(ItemChangedEvent.deleted((i % 1000) + 1)));
+
+        ArgumentCaptor<Object> messages = ArgumentCaptor.forClass(Object.class);
+        verify(reactiveRedisTemplate, timeout(2000).atLeast(2))
+                .convertAndSend(eq(ItemInvalidationBus.CHANNEL), messages.capture());
+
+        Set<Long> published = messages.getAllValues().stream()
+                .map(message -> String.valueOf(message).split(":", 2)[1])
+                .flatMap(ids -> Arrays.stream(ids.split(",")))
+                .map(Long::valueOf)
+                .collect(Collectors.toSet());
+        assertThat(messages.getAllValues()).hasSizeLessThanOrEqualTo(4);
+        assertThat(published).hasSize(1000);
+    }
+
+    @Test
+    void messageFromOtherNode_shouldEvictLocalCopies() {
+        bus.handleMessage("other-node:3,7");
+
+        verify(itemCacheService).evict(3L);
+        verify(itemCacheService).evict(7L);
+        verify(itemCacheService, never()).getItems(any());
+    }
+
+    @Test
+    void messageFromOtherNode_shouldRefreshSearchIndex() {
+        itemSearchIndex.reindex(List.of(createItem(3L, "Old lamp"), createItem(7L, "Desk")));
+        // Товар 3 переименован на другом узле, товар 7 удалён
+        when(itemRepository.findAllById(List.of(3L, 7L))).thenReturn(Flux.just(createItem(3L, "New lamp")));
+
+        bus.handleMessage("other-node:3,7");
+
+        assertThat(itemSearchIndex.search("new", ItemSort.NO)).containsExactly(3L);
+        assertThat(itemSearchIndex.search("old", ItemSort.NO)).isEmpty();
+        assertThat(itemSearchIndex.search("desk", ItemSort.NO)).isEmpty();
+    }
+
+    @Test
+    void malformedMessage_shouldBeIgnored() {
+        bus.handleMessage("other-node:3,abc");
+        bus.handleMessage("garbage");
+
+        verify(itemCacheService, never()).evict(any());
+    }
+
+    private static Item createItem(Long id, String title) {
+        Item item = new Item(title, "img.jpg", BigDecimal.TEN, "");
+        item.setId(id);
+        return item;
+    }
+}
@@ -0,0 +1,122 @@
+package org.pl.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.pl.dao.Item;
+import org.pl.dto.ItemSuggestionDto;
+import org.pl.event.ItemChangedEvent;
+import org.pl.repository.ItemRepository;
+import org.pl.repository.ItemSort;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ItemSearchIndexTest {
+
+    private ItemSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new ItemSearchIndex(mock(ItemRepository.class), true, true);
+        index.reindex(List.of(
+                createItem(1L, "MacBook Pro 16\"", "2499.99", "Ноутбук Apple"),
+                createItem(2L, "iPad Pro", "999.99", "Планшет Apple"),
+                createItem(3L, "Proxima Lamp", "49.99", "Лампа"),
+                createItem(4L, "Logitech MX Keys", "99.99", "Клавиатура")
+        ));
+    }
+
+    @Test
+    void search_shouldRankPrefixThenWordStartThenDescription() {
+        assertThat(index.isReady()).isTrue();
+        assertThat(index.search("pro", ItemSort.NO)).containsExactly(3L, 2L, 1L);
+        assertThat(index.search("APPLE", ItemSort.NO)).containsExactly(2L, 1L);
+    }
+
+    @Test
+    void search_shouldSortByPriceWhenRequested() {
+        assertThat(index.search("pro", ItemSort.PRICE_DESC)).containsExactly(1L, 2L, 3L);
+        assertThat(index.search("pro", ItemSort.ALPHA_ASC)).containsExactly(2L, 1L, 3L);
+    }
+
+    @Test
+    void search_shortAndMissingQueries() {
+        assertThat(index.search("mx", ItemSort.NO)).containsExactly(4L);
+        assertThat(index.search("xyz", ItemSort.NO)).isEmpty();
+    }
+
+    @Test
+    void onItemChanged_shouldUpdateIndex() {
+        index.onItemChanged(ItemChangedEvent.saved(createItem(5L, "Magic Keyboard Pro", "199.99", "")));
+        index.onItemChanged(ItemChangedEvent.deleted(3L));
+
+        assertThat(index.search("keyboard", ItemSort.NO)).containsExactly(5L);
+        assertThat(index.search("pro", ItemSort.PRICE_ASC)).containsExactly(5L, 2L, 1L);
+    }
+
+    @Test
+    void changesDuringFirstBuild_shouldSurviveSnapshotSwap() {
+        ItemRepository itemRepository = mock(ItemRepository.class);
+        Sinks.Many<Item> catalog = Sinks.many().unicast().onBackpressureBuffer();
+        when(itemRepository.findAll()).thenReturn(catalog.asFlux());
+        ItemSearchIndex building = new ItemSearchIndex(itemRepository, true, true);
+
+        Mono<Integer> rebuild = building.rebuild().cache();
+        rebuild.subscribe();
+        // Каталог уже прочитан, снимка ещё нет: изменения не должны потеряться
+        catalog.tryEmitNext(createItem(1L, "MacBook Pro 16\"", "2499.99", ""));
+        catalog.tryEmitNext(createItem(2L, "iPad Pro", "999.99", ""));
+        building.onItemChanged(ItemChangedEvent.saved(createItem(5L, "Magic Keyboard Pro", "199.99", "")));
+        building.onItemChanged(ItemChangedEvent.deleted(2L));
+        catalog.tryEmitComplete();
+
+        assertThat(rebuild.block()).isEqualTo(2);
+        assertThat(building.search("pro", ItemSort.PRICE_ASC)).containsExactly(5L, 1L);
+    }
+
+    @Test
+    void changesDuringRebuild_shouldNotBeOverwrittenByOlderCatalog() {
+        ItemRepository itemRepository = mock(ItemRepository.class);
+        Sinks.Many<Item> catalog = Sinks.many().unicast().onBackpressureBuffer();
+        when(itemRepository.findAll()).thenReturn(catalog.asFlux());
+        ItemSearchIndex rebuilt = new ItemSearchIndex(itemRepository, true, true);
+        rebuilt.reindex(List.of(createItem(1L, "Old lamp", "10.00", "")));
+
+        Mono<Integer> rebuild = rebuilt.rebuild().cache();
+        rebuild.subscribe();
+        catalog.tryEmitNext(createItem(1L, "Old lamp", "10.00", ""));
+        // Переименование закоммичено после чтения каталога
+        rebuilt.onItemChanged(ItemChangedEvent.saved(createItem(1L, "New lamp", "10.00", "")));
+        catalog.tryEmitComplete();
+        rebuild.block();
+
+        assertThat(rebuilt.search("new", ItemSort.NO)).containsExactly(1L);
+        assertThat(rebuilt.search("old", ItemSort.NO)).isEmpty();
+    }
+
+    @Test
+    void suggest_shouldPreferTitlePrefixAndRespectLimit() {
+        assertThat(index.suggest("pro", 10))
+                .extracting(ItemSuggestionDto::id)
+                .containsExactly(3L, 2L, 1L);
+        assertThat(index.suggest("Pro", 1))
+                .extracting(ItemSuggestionDto::title)
+                .containsExactly("Proxima Lamp");
+        assertThat(index.suggest("keys", 10))
+                .extracting(ItemSuggestionDto::id)
+                .containsExactly(4L);
+        assertThat(index.suggest("roxima", 10)).isEmpty();
+    }
+
+    private Item createItem(Long id, String title, String price, String description) {
+        Item item = new Item(title, "img.jpg", new BigDecimal(price), description);
+        item.setId(id);
+        return item;
+    }
+}
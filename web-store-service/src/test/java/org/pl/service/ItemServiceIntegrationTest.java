@@ -0,0 +1,71 @@
+package org.pl.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.pl.dao.Item;
+import org.pl.repository.ItemSort;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import reactor.test.StepVerifier;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = {
+        "store.session.store=memory",
+        "spring.r2dbc.url=r2dbc:h2:mem:///item_service_db?options=DB_CLOSE_DELAY=-1"
+})
+class ItemServiceIntegrationTest {
+
+    @Autowired
+    private ItemService itemService;
+
+    @Autowired
+    private ItemSearchIndex itemSearchIndex;
+
+    @Autowired
+    private ItemCacheService itemCacheService;
+
+    @BeforeEach
+    void setUp() {
+        itemSearchIndex.rebuild().block();
+    }
+
+    @Test
+    void saveAndDelete_shouldUpdateIndexAndCacheAfterCommit() {
+        Item saved = itemService.saveItem(new Item("Zeppelin lamp", "lamp.jpg", new BigDecimal("15.00"), "desk lamp")).block();
+        Long id = saved.getId();
+
+        assertThat(itemSearchIndex.search("zeppelin", ItemSort.NO)).containsExactly(id);
+        StepVerifier.create(itemCacheService.getItem(id))
+                .assertNext(item -> assertThat(item.getTitle()).isEqualTo("Zeppelin lamp"))
+                .verifyComplete();
+
+        // Переименование: в L1 лежит старая версия, после коммита она должна быть вытеснена
+        saved.setTitle("Zeppelin floor lamp");
+        itemService.saveItem(saved).block();
+
+        assertThat(itemSearchIndex.search("floor", ItemSort.NO)).containsExactly(id);
+        StepVerifier.create(itemCacheService.getItem(id))
+                .assertNext(item -> assertThat(item.getTitle()).isEqualTo("Zeppelin floor lamp"))
+                .verifyComplete();
+
+        itemService.deleteItem(id).block();
+
+        assertThat(itemSearchIndex.search("zeppelin", ItemSort.NO)).isEmpty();
+        StepVerifier.create(itemCacheService.getItem(id))
+                .verifyComplete();
+    }
+
+    @Test
+    void failedSave_shouldNotTouchIndex() {
+        Item invalid = new Item(null, "lamp.jpg", new BigDecimal("15.00"), "untitled lamp");
+
+        StepVerifier.create(itemService.saveItem(invalid))
+                .expectError()
+                .verify();
+
+        assertThat(itemSearchIndex.search("untitled", ItemSort.NO)).isEmpty();
+    }
+}
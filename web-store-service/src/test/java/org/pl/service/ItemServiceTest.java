@@ -0,0 +1,173 @@
+package org.pl.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.pl.dao.Item;
+import org.pl.dto.ItemCursor;
+import org.pl.dto.ItemsCursorPage;
+import org.pl.dto.ItemsWithTotalDto;
+import org.pl.event.ItemChangedEvent;
+import org.pl.repository.ItemRepository;
+import org.pl.repository.ItemSort;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ItemServiceTest {
+
+    private ItemRepository itemRepository;
+    private ItemCacheService itemCacheService;
+    private CatalogPageCache catalogPageCache;
+    private ItemService itemService;
+
+    @BeforeEach
+    void setUp() {
+        itemRepository = mock(ItemRepository.class);
+        itemCacheService = mock(ItemCacheService.class);
+        catalogPageCache = new CatalogPageCache(new SimpleMeterRegistry(), 100, Duration.ofMinutes(1));
+        itemService = new ItemService(
+                itemRepository,
+                itemCacheService,
+                mock(ItemSearchIndex.class),
+                catalogPageCache,
+                mock(ApplicationEventPublisher.class),
+                mock(TransactionalOperator.class),
+                false,
+                1000
+        );
+
+        when(itemRepository.findPageWithTotal(any(), any(), anyInt(), anyLong(), any()))
+                .thenReturn(Mono.just(new ItemsWithTotalDto(List.of(createItem(2L), createItem(1L)), 2, false)));
+        when(itemCacheService.getItems(List.of(2L, 1L))).thenReturn(Flux.just(createItem(1L), createItem(2L)));
+    }
+
+    @Test
+    void getItemsSorted_repeatedPage_shouldBeServedFromPageCacheWithoutSql() {
+        StepVerifier.create(itemService.getItemsSorted(PageRequest.of(0, 5), "PRICE_ASC", " Phone "))
+                .expectNextMatches(page -> ids(page.getContent()).equals(List.of(2L, 1L)))
+                .verifyComplete();
+
+        // Та же страница с другим регистром и пробелами - тот же ключ кэша
+        StepVerifier.create(itemService.getItemsSorted(PageRequest.of(0, 5), "PRICE_ASC", "phone"))
+                .expectNextMatches(page -> ids(page.getContent()).equals(List.of(2L, 1L)))
+                .verifyComplete();
+
+        verify(itemRepository, times(1)).findPageWithTotal(eq("phone"), eq(ItemSort.PRICE_ASC), eq(5), eq(0L), any());
+    }
+
+    @Test
+    void getItemsSorted_afterItemChange_shouldReloadPage() {
+        StepVerifier.create(itemService.getItemsSorted(PageRequest.of(0, 5), "PRICE_ASC", "phone"))
+                .expectNextCount(1)
+                .verifyComplete();
+
+        catalogPageCache.onItemChanged(ItemChangedEvent.deleted(3L));
+
+        StepVerifier.create(itemService.getItemsSorted(PageRequest.of(0, 5), "PRICE_ASC", "phone"))
+                .expectNextCount(1)
+                .verifyComplete();
+
+        verify(itemRepository, times(2)).findPageWithTotal(any(), any(), anyInt(), anyLong(), any());
+    }
+
+    @Test
+    void getItemsByCursor_shouldNormalizeSearchLikeOffsetPages() {
+        when(itemRepository.findPageAfter(any(), any(), any(), anyLong(), eq(false), anyInt()))
+                .thenReturn(Flux.just(createItem(3L)));
+        ItemCursor cursor = ItemCursor.after(ItemSort.PRICE_ASC, createItem(2L), 2);
+
+        StepVerifier.create(itemService.getItemsByCursor(cursor, 5, "  PHONE "))
+                .expectNextMatches(page -> ids(page.content()).equals(List.of(3L)))
+                .verifyComplete();
+
+        verify(itemRepository).findPageAfter(eq("phone"), eq(ItemSort.PRICE_ASC), any(), eq(2L), eq(false), eq(6));
+    }
+
+    @Test
+    void getItemsByCursor_indexedSearch_shouldContinueInRelevanceOrder() {
+        List<Item> catalog = List.of(
+                createItem(1L, "Smartphone Pro", "flagship"),
+                createItem(2L, "Laptop Pro", "notebook"),
+                createItem(10L, "Pro", "exact title"),
+                createItem(11L, "Pro Max", "title prefix"),
+                createItem(12L, "Mouse", "no match")
+        );
+        ItemSearchIndex searchIndex = new ItemSearchIndex(itemRepository, true, true);
+        searchIndex.reindex(catalog);
+        when(itemCacheService.getItems(any())).thenAnswer(invocation -> {
+            List<Long> requested = invocation.getArgument(0);
+            return Flux.fromIterable(catalog).filter(item -> requested.contains(item.getId()));
+        });
+        ItemService indexedService = new ItemService(
+                itemRepository,
+                itemCacheService,
+                searchIndex,
+                catalogPageCache,
+                mock(ApplicationEventPublisher.class),
+                mock(TransactionalOperator.class),
+                false,
+                1000
+        );
+        List<Long> ranked = searchIndex.search("pro", ItemSort.NO);
+
+        // Первая страница - первые два id индекса, дальше листаем курсором от последнего показанного
+        List<Long> seen = new ArrayList<>(ranked.subList(0, 2));
+        ItemCursor cursor = ItemCursor.after(ItemSort.NO, byId(catalog, ranked.get(1)), 2);
+        while (cursor != null) {
+            ItemsCursorPage page = indexedService.getItemsByCursor(cursor, 2, "PRO").block();
+            seen.addAll(ids(page.content()));
+            cursor = page.nextCursor() != null ? ItemCursor.decode(page.nextCursor()) : null;
+        }
+
+        assertEquals(ranked, seen);
+        verify(itemRepository, never()).findPageAfter(any(), any(), any(), anyLong(), anyBoolean(), anyInt());
+
+        // Назад с последней страницы - снова к первой, с тем же порядком
+        ItemsCursorPage previous = indexedService.getItemsByCursor(
+                ItemCursor.before(ItemSort.NO, byId(catalog, ranked.get(2)), 1), 2, "pro").block();
+        assertEquals(ranked.subList(0, 2), ids(previous.content()));
+        assertFalse(previous.hasPrevious());
+    }
+
+    private static List<Long> ids(List<List<Item>> chunks) {
+        return chunks.stream().flatMap(List::stream).map(Item::getId).toList();
+    }
+
+    private static Item byId(List<Item> items, Long id) {
+        return items.stream().filter(item -> item.getId().equals(id)).findFirst().orElseThrow();
+    }
+
+    private static Item createItem(Long id, String title, String description) {
+        Item item = new Item(title, "img.jpg", BigDecimal.TEN, description);
+        item.setId(id);
+        return item;
+    }
+
+    private Item createItem(Long id) {
+        Item item = new Item("Phone " + id, "img.jpg", BigDecimal.TEN, "desc");
+        item.setId(id);
+        return item;
+    }
+}
@@ -0,0 +1,73 @@
+package org.pl.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.pl.repository.OrderRepository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class OrderNumberAllocatorTest {
+
+    private static final int BLOCK_SIZE = 10;
+
+    private final OrderRepository orderRepository = mock(OrderRepository.class);
+    private final AtomicLong sequence = new AtomicLong(5);
+
+    @BeforeEach
+    void setUp() {
+        when(orderRepository.findOrderNumberBlockSize()).thenReturn(Mono.just((long) BLOCK_SIZE));
+    }
+
+    @Test
+    void next_shouldHandOutBlockWithoutQueryPerNumber() {
+        when(orderRepository.nextOrderNumberBlock())
+                .thenReturn(Mono.fromSupplier(() -> sequence.addAndGet(BLOCK_SIZE)));
+        OrderNumberAllocator allocator = new OrderNumberAllocator(orderRepository);
+
+        StepVerifier.create(Flux.range(0, 12).concatMap(i -> allocator.next()))
+                .expectNext(6L, 7L, 8L, 9L, 10L, 11L, 12L, 13L, 14L, 15L, 16L, 17L)
+                .verifyComplete();
+
+        verify(orderRepository, times(2)).nextOrderNumberBlock();
+    }
+
+    @Test
+    void next_shouldStayUniqueUnderParallelRequests() {
+        when(orderRepository.nextOrderNumberBlock())
+                .thenReturn(Mono.fromSupplier(() -> sequence.addAndGet(BLOCK_SIZE))
+                        .delayElement(Duration.ofMillis(5)));
+        OrderNumberAllocator allocator = new OrderNumberAllocator(orderRepository);
+
+        List<Long> numbers = Flux.range(0, 200)
+                .flatMap(i -> allocator.next().subscribeOn(Schedulers.parallel()))
+                .collectList()
+                .block(Duration.ofSeconds(10));
+
+        assertThat(numbers).hasSize(200);
+        assertThat(new HashSet<>(numbers)).hasSize(200);
+    }
+
+    @Test
+    void next_shouldRetryAfterFailedRefill() {
+        when(orderRepository.nextOrderNumberBlock())
+                .thenReturn(Mono.error(new IllegalStateException("db down")))
+                .thenReturn(Mono.fromSupplier(() -> sequence.addAndGet(BLOCK_SIZE)));
+        OrderNumberAllocator allocator = new OrderNumberAllocator(orderRepository);
+
+        StepVerifier.create(allocator.next()).expectError(IllegalStateException.class).verify();
+        StepVerifier.create(allocator.next()).expectNext(6L).verifyComplete();
+    }
+}
@@ -0,0 +1,66 @@
+package org.pl.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.ReactiveHashOperations;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class RedisCartStoreTest {
+
+    private ReactiveStringRedisTemplate redisTemplate;
+    private ReactiveHashOperations<String, String, String> hashOps;
+    private RedisCartStore store;
+    private MockServerWebExchange exchange;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        redisTemplate = mock(ReactiveStringRedisTemplate.class);
+        hashOps = mock(ReactiveHashOperations.class);
+        when(redisTemplate.<String, String>opsForHash()).thenReturn(hashOps);
+        store = new RedisCartStore(redisTemplate, Duration.ofDays(7));
+        exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/cart"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void change_shouldBeSingleScriptCallOnSessionCart() {
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), anyList())).thenReturn(Flux.just(1L));
+
+        StepVerifier.create(store.change(exchange, 5L, -1)).verifyComplete();
+
+        String sessionId = exchange.getSession().block().getId();
+        verify(redisTemplate).execute(any(RedisScript.class),
+                eq(List.of("cart:" + sessionId)),
+                eq(List.of("5", "-1", String.valueOf(Duration.ofDays(7).toSeconds()))));
+        assertThat(exchange.getSession().block().isStarted()).isTrue();
+    }
+
+    @Test
+    void getCartItemsAndCount_shouldReadHash() {
+        when(hashOps.entries(anyString())).thenReturn(Flux.just(Map.entry("1", "2"), Map.entry("15", "1")));
+
+        StepVerifier.create(store.getCartItems(exchange))
+                .assertNext(items -> assertThat(items).isEqualTo(Map.of(1L, 2, 15L, 1)))
+                .verifyComplete();
+        StepVerifier.create(store.countItems(exchange, Map.of(1L, 2, 15L, 1))).expectNext(3).verifyComplete();
+    }
+}
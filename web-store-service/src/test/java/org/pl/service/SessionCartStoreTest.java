@@ -0,0 +1,74 @@
+package org.pl.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.test.StepVerifier;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SessionCartStoreTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final SessionCartStore store = new SessionCartStore(meterRegistry);
+    private final MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/cart"));
+
+    @Test
+    void change_shouldNeverGoBelowZeroAndCountSkipsEmptyLines() {
+        StepVerifier.create(store.change(exchange, 1L, 1)
+                        .then(store.change(exchange, 1L, 1))
+                        .then(store.change(exchange, 2L, 1))
+                        .then(store.change(exchange, 2L, -1))
+                        .then(store.change(exchange, 3L, -1))
+                        .then(store.getCartItems(exchange))
+                        .flatMap(items -> store.countItems(exchange, items)))
+                .expectNext(2)
+                .verifyComplete();
+
+        StepVerifier.create(store.getCartItems(exchange))
+                .assertNext(items -> assertThat(items).isEqualTo(Map.of(1L, 2)))
+                .verifyComplete();
+    }
+
+    @Test
+    void removeAndClear_shouldDropLines() {
+        StepVerifier.create(store.change(exchange, 1L, 1)
+                        .then(store.change(exchange, 2L, 1))
+                        .then(store.remove(exchange, 1L))
+                        .then(store.getCartItems(exchange)))
+                .assertNext(items -> assertThat(items).isEqualTo(Map.of(2L, 1)))
+                .verifyComplete();
+
+        StepVerifier.create(store.clear(exchange)
+                        .then(store.getCartItems(exchange))
+                        .flatMap(items -> store.countItems(exchange, items)))
+                .expectNext(0)
+                .verifyComplete();
+    }
+
+    @Test
+    void countItems_shouldNotSaveUnchangedCart() {
+        StepVerifier.create(store.change(exchange, 1L, 2)
+                        .then(store.getCartItems(exchange))
+                        .flatMap(items -> store.countItems(exchange, items))
+                        .then(store.getCartItems(exchange))
+                        .flatMap(items -> store.countItems(exchange, items)))
+                .expectNext(2)
+                .verifyComplete();
+
+        assertThat(meterRegistry.counter("store.session.saves", "result", "written").count()).isEqualTo(1);
+        assertThat(meterRegistry.counter("store.session.saves", "result", "avoided").count()).isEqualTo(2);
+    }
+
+    @Test
+    void getCartItems_shouldNotStartSessionForEmptyCart() {
+        StepVerifier.create(store.getCartItems(exchange)
+                        .flatMap(items -> store.countItems(exchange, items))
+                        .then(exchange.getSession()))
+                .assertNext(session -> assertThat(session.isStarted()).isFalse())
+                .verifyComplete();
+    }
+}
@@ -0,0 +1,62 @@
+package org.pl.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class SessionItemsCountsServiceTest {
+
+    private CartStore cartStore;
+    private SessionItemsCountsService service;
+    private MockServerWebExchange exchange;
+
+    @BeforeEach
+    void setUp() {
+        cartStore = mock(CartStore.class);
+        service = new SessionItemsCountsService(cartStore);
+        exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/items/1"));
+        when(cartStore.getCartItems(any())).thenReturn(Mono.fromSupplier(() -> new HashMap<>(Map.of(1L, 2))));
+        when(cartStore.countItems(any(), anyMap())).thenReturn(Mono.just(2));
+        when(cartStore.change(any(), any(), any(Integer.class))).thenReturn(Mono.empty());
+    }
+
+    @Test
+    void cartAndCount_shouldBeLoadedOncePerRequest() {
+        StepVerifier.create(Mono.zip(
+                        service.getCartItems(exchange),
+                        service.checkItemsCount(exchange),
+                        service.getCartItems(exchange),
+                        service.checkItemsCount(exchange)
+                ))
+                .expectNextCount(1)
+                .verifyComplete();
+
+        verify(cartStore, times(1)).getCartItems(exchange);
+        verify(cartStore, times(1)).countItems(any(), anyMap());
+    }
+
+    @Test
+    void update_shouldInvalidateMemoizedCart() {
+        StepVerifier.create(service.getCartItems(exchange)
+                        .then(service.updateItemCount(exchange, 1L, "PLUS"))
+                        .then(service.getCartItems(exchange)))
+                .expectNextCount(1)
+                .verifyComplete();
+
+        verify(cartStore).change(exchange, 1L, 1);
+        verify(cartStore, times(2)).getCartItems(exchange);
+    }
+}